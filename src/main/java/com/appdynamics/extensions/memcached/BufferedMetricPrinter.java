@@ -0,0 +1,30 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers the metrics of a cluster until its collection completed, so that they are only reported when the cluster
+ * finished within its timeout.
+ */
+public class BufferedMetricPrinter implements MetricPrinter {
+
+    private final List<String[]> metrics = new ArrayList<String[]>();
+
+    public void printMetric(String metricName, String metricValue, String aggType, String timeRollupType, String clusterRollupType) {
+        metrics.add(new String[]{metricName, metricValue, aggType, timeRollupType, clusterRollupType});
+    }
+
+    public void printTo(MetricPrinter printer) {
+        for (String[] metric : metrics) {
+            printer.printMetric(metric[0], metric[1], metric[2], metric[3], metric[4]);
+        }
+    }
+}
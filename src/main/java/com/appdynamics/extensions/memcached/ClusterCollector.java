@@ -0,0 +1,612 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.memcached.config.Cluster;
+import com.appdynamics.extensions.memcached.config.Configuration;
+import com.appdynamics.extensions.memcached.config.Server;
+import com.appdynamics.extensions.util.metrics.Metric;
+import com.appdynamics.extensions.util.metrics.MetricFactory;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.singularity.ee.agent.systemagent.api.MetricWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+
+/**
+ * Collects the metrics of the servers of a single cluster. Every cluster has its own executor, delta cache and polling
+ * state, so a slow or failing cluster cannot affect the others.
+ */
+public class ClusterCollector {
+
+    public static final Logger logger = LoggerFactory.getLogger(ClusterCollector.class);
+    public static final String METRICS_COLLECTION_SUCCESSFUL = "Metrics Collection Successful";
+    public static final String CONFIGURATION_CHANGED = "Configuration Changed";
+    public static final String DISTINCT_CONFIGURATIONS = "Distinct Configurations";
+    public static final String SETTINGS = "settings";
+    public static final String SLABS = "slabs";
+    public static final String ITEMS = "items";
+    public static final String CONNS = "conns";
+    public static final String EXTSTORE = "extstore";
+    public static final String SLAB_ANALYSIS = StatsScheduler.SLAB_ANALYSIS;
+    public static final String CONNECTION_ANALYSIS = StatsScheduler.CONNECTION_ANALYSIS;
+    public static final String EXTSTORE_ANALYSIS = StatsScheduler.EXTSTORE_ANALYSIS;
+    public static final String PROXY_ANALYSIS = "proxy_analysis";
+    public static final String MCROUTER_SERVERS = "servers";
+    public static final String PROXY = "proxy";
+    public static final String FAILED = "0";
+    public static final String SUCCESS = "1";
+    private static final List<String> DERIVED_METRIC_PREFIXES = Arrays.asList(
+            SlabRebalanceAnalyzer.SLAB_ANALYSIS + METRICS_SEPARATOR,
+            ConnectionAnalyzer.CONNECTIONS + METRICS_SEPARATOR,
+            ExtstoreAnalyzer.EXTSTORE + METRICS_SEPARATOR);
+    private volatile Configuration config;
+    private volatile Cluster cluster;
+    private volatile EmissionFilter emissionFilter;
+    private volatile ConnectionAnalyzer connectionAnalyzer;
+    private volatile StatsFilter statsFilter;
+    private volatile ProxyStatsAnalyzer proxyAnalyzer;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, BigInteger> cache = CacheBuilder.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES).build();
+    //read on every run while the group is served from the statsScheduler cache, so it only expires for removed servers
+    private final Cache<String, TieredValue> tieredCache = CacheBuilder.newBuilder().expireAfterAccess(5, TimeUnit.MINUTES).build();
+    private final StatsScheduler statsScheduler = new StatsScheduler();
+    private final SettingsFingerprinter settingsFingerprinter = new SettingsFingerprinter();
+    private final SlabRebalanceAnalyzer slabAnalyzer = new SlabRebalanceAnalyzer();
+    private final ExtstoreAnalyzer extstoreAnalyzer = new ExtstoreAnalyzer();
+
+    public ClusterCollector(Configuration config, Cluster cluster) {
+        String name = cluster.getName() != null ? cluster.getName() : "default";
+        int poolSize = getPoolSize(cluster);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("memcached-" + name + "-%d").setDaemon(true).build());
+        setConfig(config, cluster);
+    }
+
+    /**
+     * Applies a new config of the cluster, resizing the executor if its maxConcurrency changed.
+     * @param config
+     * @param cluster
+     */
+    public void setConfig(Configuration config, Cluster cluster) {
+        int poolSize = getPoolSize(cluster);
+        //the core size can never exceed the maximum size
+        if(poolSize > executor.getMaximumPoolSize()){
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        }
+        else if(poolSize < executor.getCorePoolSize()){
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
+        }
+        this.emissionFilter = config.isChangeOnlyEmission() ? new EmissionFilter(config.getHeartbeatIntervalInMins()) : null;
+        this.statsFilter = config.getStatsFilter();
+        this.proxyAnalyzer = new ProxyStatsAnalyzer(config.getProxyMaxDestinations(), config.getProxyMaxRoutes());
+        this.connectionAnalyzer = new ConnectionAnalyzer(config.getConnectionAnalysisTopK(), config.getConnectionAnalysisSubnetBits());
+        this.config = config;
+        this.cluster = cluster;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    int getExecutorPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    private static int getPoolSize(Cluster cluster) {
+        return Math.max(cluster.getMaxConcurrency(), 1);
+    }
+
+
+    /**
+     * Runs a collection cycle and reports all the metrics to the printer.
+     * @param printer
+     * @throws Exception
+     */
+    public void collect(MetricPrinter printer) throws Exception {
+        //collect the metrics
+        List<InstanceMetric> instanceMetrics = collectMetrics();
+        //adding metric overrides
+        MetricFactory<String> metricFactory = new MetricFactory<String>(cluster.getMetricOverrides());
+        for(InstanceMetric instance : instanceMetrics){
+            //the cached tiers of a server which cannot be reached are not served
+            if(!instance.isFailed()){
+                instance.getAllMetrics().addAll(metricFactory.process(instance.getMetricsMap()));
+                addTieredMetrics(instance, metricFactory);
+            }
+        }
+        //print the metrics
+        for(InstanceMetric instance: instanceMetrics){
+            printMetrics(printer, instance);
+            if(!instance.isFailed() && !instance.getAllMetrics().isEmpty()){
+                printer.printMetric(getMetricPrefix(instance.getDisplayName()) + METRICS_COLLECTION_SUCCESSFUL, SUCCESS, MetricWriter.METRIC_AGGREGATION_TYPE_OBSERVATION,MetricWriter.METRIC_TIME_ROLLUP_TYPE_CURRENT,MetricWriter.METRIC_CLUSTER_ROLLUP_TYPE_INDIVIDUAL);
+            }
+            else {
+                printer.printMetric(getMetricPrefix(instance.getDisplayName()) + METRICS_COLLECTION_SUCCESSFUL, FAILED, MetricWriter.METRIC_AGGREGATION_TYPE_OBSERVATION,MetricWriter.METRIC_TIME_ROLLUP_TYPE_CURRENT,MetricWriter.METRIC_CLUSTER_ROLLUP_TYPE_INDIVIDUAL);
+            }
+            if(config.isDetectConfigurationChanges()){
+                printer.printMetric(getMetricPrefix(instance.getDisplayName()) + CONFIGURATION_CHANGED, instance.isConfigurationChanged() ? "1" : "0", MetricWriter.METRIC_AGGREGATION_TYPE_OBSERVATION,MetricWriter.METRIC_TIME_ROLLUP_TYPE_CURRENT,MetricWriter.METRIC_CLUSTER_ROLLUP_TYPE_INDIVIDUAL);
+            }
+        }
+        if(config.isDetectConfigurationChanges()){
+            printer.printMetric(cluster.getMetricPrefix() + DISTINCT_CONFIGURATIONS, String.valueOf(settingsFingerprinter.getDistinctCount()), MetricWriter.METRIC_AGGREGATION_TYPE_OBSERVATION,MetricWriter.METRIC_TIME_ROLLUP_TYPE_CURRENT,MetricWriter.METRIC_CLUSTER_ROLLUP_TYPE_INDIVIDUAL);
+        }
+    }
+
+
+    /**
+     * Reports the collection of all the servers of the cluster as failed, eg. when the cluster did not complete within
+     * its deadline.
+     * @param printer
+     */
+    public void printFailure(MetricPrinter printer) {
+        if(cluster.getServers() != null){
+            for(Server server : cluster.getServers()){
+                printer.printMetric(getMetricPrefix(server.getDisplayName()) + METRICS_COLLECTION_SUCCESSFUL, FAILED, MetricWriter.METRIC_AGGREGATION_TYPE_OBSERVATION,MetricWriter.METRIC_TIME_ROLLUP_TYPE_CURRENT,MetricWriter.METRIC_CLUSTER_ROLLUP_TYPE_INDIVIDUAL);
+            }
+        }
+    }
+
+
+    /**
+     * Collects all the metrics by connecting to every memcached server directly, over TCP or over a unix domain socket,
+     * so that the {@link StatsFilter} is applied while the responses are read. The servers are collected on the executor
+     * of the cluster.
+     * @throws Exception
+     */
+    private List<InstanceMetric> collectMetrics() throws Exception {
+        List<Future<InstanceMetric>> futures = new ArrayList<Future<InstanceMetric>>();
+        try {
+            statsScheduler.nextRun();
+            if(cluster.getServers() != null){
+                for(final Server server : cluster.getServers()){
+                    futures.add(executor.submit(new Callable<InstanceMetric>() {
+                        public InstanceMetric call() {
+                            return collectServerMetrics(server);
+                        }
+                    }));
+                }
+            }
+
+            List<InstanceMetric> instanceMetrics = new ArrayList<InstanceMetric>();
+            List<String> servers = new ArrayList<String>();
+            for(Future<InstanceMetric> future : futures){
+                InstanceMetric instance = future.get();
+                instanceMetrics.add(instance);
+                servers.add(instance.getServer());
+            }
+            statsScheduler.retain(servers);
+            settingsFingerprinter.retain(servers);
+            slabAnalyzer.retain(servers);
+            extstoreAnalyzer.retain(servers);
+            return instanceMetrics;
+        }
+        catch(Exception e){
+            logger.error("Unable to collect memcached metrics ", e);
+            throw e;
+        }
+        finally {
+            for(Future<InstanceMetric> future : futures){
+                future.cancel(true);
+            }
+        }
+    }
+
+
+    /**
+     * Collects the metrics of a server over a single connection: the general stats, then the stats groups which are due
+     * or the proxy stats. A server which cannot be reached is marked as failed and reported with no metrics.
+     */
+    private InstanceMetric collectServerMetrics(Server server) {
+        InstanceMetric instance = new InstanceMetric(server.getDisplayName(), null);
+        instance.setServer(server.getServer());
+        SocketStatsClient statsClient = null;
+        try {
+            int timeout = (int) cluster.getTimeout();
+            statsClient = server.isUnixSocket() ? SocketStatsClient.connectUnixSocket(server.getSocketPath(), timeout)
+                    : new SocketStatsClient(toSocketAddress(server.getServer()), timeout);
+            instance.setMetricsMap(statsClient.getStats(null, statsFilter));
+            if(server.isMcrouter()){
+                //mcrouter has none of the memcached stats groups
+                checkRestart(instance);
+                statsFilter.retain(instance.getMetricsMap());
+                retainNumeric(instance.getMetricsMap());
+            }
+            else {
+                collectStatsGroups(statsClient, instance);
+            }
+            if(server.isProxy()){
+                collectProxyStats(statsClient, instance, server);
+            }
+        }
+        catch(Exception e){
+            logger.error("Unable to collect memcached metrics from {}", server.getServer(), e);
+            instance.setFailed(true);
+        }
+        finally {
+            if(statsClient != null){
+                statsClient.close();
+            }
+        }
+        return instance;
+    }
+
+
+    /**
+     * Collects the per destination stats of mcrouter or the route stats of the memcached proxy on every run.
+     */
+    private void collectProxyStats(StatsClient statsClient, InstanceMetric instance, Server server) throws Exception {
+        if(server.isMcrouter()){
+            instance.getGroupStats().put(PROXY_ANALYSIS, proxyAnalyzer.analyzeDestinations(statsClient.getStats(MCROUTER_SERVERS, statsFilter)));
+        }
+        else {
+            instance.getGroupStats().put(PROXY_ANALYSIS, proxyAnalyzer.analyzeRoutes(statsClient.getStats(PROXY, statsFilter)));
+        }
+    }
+
+
+    private void printMetrics(MetricPrinter printer, InstanceMetric instance) {
+        Set<String> ignoreDelta = config.getIgnoreDelta();
+        String prefix = getMetricPrefix(instance.getDisplayName());
+        Map<Metric, Long> tieredMetrics = instance.getTieredMetrics();
+        for(Metric aMetric:instance.getAllMetrics()) {
+            String metricPath = prefix + aMetric.getMetricPath();
+            BigInteger metricValue = aMetric.getMetricValue();
+            Long runs = tieredMetrics.get(aMetric);
+            if (ignoreDelta.contains(aMetric.getMetricPath()) || isDerived(aMetric.getMetricPath())) {
+                logger.debug("Ignore delta calculation for {}", metricPath);
+                printChangedMetric(printer, metricPath, metricValue, aMetric);
+            }
+            else if(runs != null){
+                printTieredDelta(printer, metricPath, aMetric, runs);
+            }
+            else{
+                BigInteger prevValue = cache.getIfPresent(metricPath);
+                cache.put(metricPath, metricValue);
+                if(prevValue != null){
+                    BigInteger deltaValue = metricValue.subtract(prevValue);
+                    printChangedMetric(printer, metricPath, deltaValue, aMetric);
+                }
+
+            }
+        }
+    }
+
+
+    /**
+     * Reports the delta of a metric of a non hot group as the average delta per run since the previous refresh of the
+     * group, and reports the same value on the runs the group is served from the cache, so a counter polled every N runs
+     * is reported on every run instead of as a single spike every N runs.
+     * @param runs the number of runs since the previous refresh, 0 if the metric is served from the cache
+     */
+    private void printTieredDelta(MetricPrinter printer, String metricPath, Metric aMetric, long runs) {
+        TieredValue previous = tieredCache.getIfPresent(metricPath);
+        if(runs > 0){
+            BigInteger deltaPerRun = null;
+            if(previous != null){
+                deltaPerRun = aMetric.getMetricValue().subtract(previous.value).divide(BigInteger.valueOf(runs));
+            }
+            previous = new TieredValue(aMetric.getMetricValue(), deltaPerRun);
+            tieredCache.put(metricPath, previous);
+        }
+        if(previous != null && previous.deltaPerRun != null){
+            printChangedMetric(printer, metricPath, previous.deltaPerRun, aMetric);
+        }
+    }
+
+
+    /**
+     * @return true for the metrics computed by the extension and the proxy gauges, which are reported as is instead of
+     * as a delta
+     */
+    private static boolean isDerived(String metricPath) {
+        for(String prefix : DERIVED_METRIC_PREFIXES){
+            if(metricPath.startsWith(prefix)){
+                return true;
+            }
+        }
+        return ProxyStatsAnalyzer.isGauge(metricPath) || ExtstoreAnalyzer.isGauge(metricPath);
+    }
+
+
+    /**
+     * Reports the value unless change only emission is enabled and the value did not change since it was last
+     * reported within the heartbeat interval.
+     */
+    private void printChangedMetric(MetricPrinter printer, String metricPath, BigInteger value, Metric aMetric) {
+        EmissionFilter filter = emissionFilter;
+        if(filter != null && !filter.shouldEmit(metricPath, value)){
+            logger.debug("Suppressing unchanged metric {}", metricPath);
+            return;
+        }
+        printer.printMetric(metricPath, value.toString(), aMetric.getAggregator(), aMetric.getTimeRollup(), aMetric.getClusterRollup());
+    }
+
+
+
+    private String getMetricPrefix(String displayName) {
+        if(!Strings.isNullOrEmpty(displayName)) {
+            return cluster.getMetricPrefix() + displayName + METRICS_SEPARATOR;
+        }
+        else{
+            return cluster.getMetricPrefix();
+        }
+    }
+
+
+    private static InetSocketAddress toSocketAddress(String server) {
+        String splits[] = server.split(":");
+        String hostname = "";
+        int port = 11211;
+        if(splits != null && splits.length > 1){
+            hostname = splits[0];
+            port = Integer.parseInt(splits[1]);
+        }
+        return new InetSocketAddress(hostname,port);
+    }
+
+
+    /**
+     * Drops the cached tiers of the server if it was restarted, along with the values the deltas of its tiered counters
+     * are computed from, as the counters started over.
+     */
+    private void checkRestart(InstanceMetric instance) {
+        if(statsScheduler.checkRestart(instance.getServer(), instance.getMetricsMap())){
+            String prefix = getMetricPrefix(instance.getDisplayName());
+            Iterator<String> it = tieredCache.asMap().keySet().iterator();
+            while(it.hasNext()){
+                if(it.next().startsWith(prefix)){
+                    it.remove();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Fetches the stats groups which are due on this run according to their polling tier. The static values of the
+     * general stats are moved out of the per-run stats so that they are only processed when their tier is due.
+     * The groups used by an analysis are read unfiltered, and the stats which are not accepted by the {@link StatsFilter}
+     * are dropped once the analyses are done.
+     * @param statsClient
+     * @param instance
+     */
+    private void collectStatsGroups(StatsClient statsClient, InstanceMetric instance) {
+        String server = instance.getServer();
+        Map<String, String> generalStats = instance.getMetricsMap();
+        checkRestart(instance);
+
+        Map<String, String> staticStats = new HashMap<String, String>();
+        for(String key : StatsScheduler.STATIC_GENERAL_STATS){
+            String value = generalStats.remove(key);
+            if(value != null){
+                staticStats.put(key, value);
+            }
+        }
+        if(isDue(server, StatsScheduler.GENERAL_STATIC)){
+            instance.getGroupStats().put(StatsScheduler.GENERAL_STATIC, staticStats);
+        }
+
+        Map<String, Map<String, String>> rawStats = new HashMap<String, Map<String, String>>();
+        for(String group : getGroupsToFetch(generalStats)){
+            if(!isDue(server, group)){
+                continue;
+            }
+            try {
+                Map<String, String> groupStats;
+                if(config.isConnectionAnalysis() && CONNS.equals(group)){
+                    groupStats = analyzeConnections(statsClient, instance, config.getStatsGroups().contains(group));
+                }
+                else{
+                    groupStats = statsClient.getStats(group, isAnalysed(group, generalStats) ? null : statsFilter);
+                    rawStats.put(group, groupStats);
+                }
+                if(config.getStatsGroups().contains(group)){
+                    instance.getGroupStats().put(group, prefixGroupStats(group, groupStats));
+                }
+                else{
+                    //only fetched for an analysis, mark it as refreshed without reporting the stats
+                    statsScheduler.update(server, group, Collections.<Metric>emptyList());
+                }
+            }
+            catch(Exception e){
+                logger.error("Unable to collect stats {} from {}", group, server, e);
+            }
+        }
+
+        if(config.isDetectConfigurationChanges() && rawStats.containsKey(SETTINGS)){
+            instance.setConfigurationChanged(settingsFingerprinter.update(server, rawStats.get(SETTINGS)));
+        }
+        if(config.isSlabAnalysis() && rawStats.containsKey(SLABS) && rawStats.containsKey(ITEMS)){
+            instance.getGroupStats().put(SLAB_ANALYSIS, slabAnalyzer.analyze(server, rawStats.get(SLABS), rawStats.get(ITEMS)));
+        }
+        if(ExtstoreAnalyzer.isEnabled(generalStats)){
+            instance.getGroupStats().put(EXTSTORE_ANALYSIS, extstoreAnalyzer.analyze(server, generalStats, rawStats.get(EXTSTORE)));
+        }
+        statsFilter.retain(generalStats);
+        statsFilter.retain(staticStats);
+    }
+
+    /**
+     * Folds the "stats conns" output into the {@link ConnectionAnalyzer} while it is read, as it holds several stats
+     * per client connection.
+     * @param reported true if "conns" is also a reported stats group
+     * @return the raw stats if the group is reported, otherwise null
+     */
+    private Map<String, String> analyzeConnections(StatsClient statsClient, InstanceMetric instance, boolean reported) throws Exception {
+        final ConnectionAnalyzer.Analysis analysis = connectionAnalyzer.newAnalysis();
+        final Map<String, String> conns = reported ? new HashMap<String, String>() : null;
+        statsClient.readStats(CONNS, !reported ? analysis : new StatsHandler() {
+            public void stat(CharSequence key, CharSequence value) {
+                analysis.stat(key, value);
+                conns.put(key.toString(), value.toString());
+            }
+        });
+        instance.getGroupStats().put(CONNECTION_ANALYSIS, analysis.getMetrics());
+        return conns;
+    }
+
+    /**
+     * @param generalStats the general stats of the server, which tell whether the server runs with extstore
+     * @return the stats groups to report, followed by the groups which are only fetched for an analysis
+     */
+    private List<String> getGroupsToFetch(Map<String, String> generalStats) {
+        List<String> groups = new ArrayList<String>(config.getStatsGroups());
+        if(config.isDetectConfigurationChanges() && !groups.contains(SETTINGS)){
+            groups.add(SETTINGS);
+        }
+        if(config.isSlabAnalysis()){
+            if(!groups.contains(SLABS)){
+                groups.add(SLABS);
+            }
+            if(!groups.contains(ITEMS)){
+                groups.add(ITEMS);
+            }
+        }
+        if(config.isConnectionAnalysis() && !groups.contains(CONNS)){
+            groups.add(CONNS);
+        }
+        if(ExtstoreAnalyzer.isEnabled(generalStats) && !groups.contains(EXTSTORE)){
+            groups.add(EXTSTORE);
+        }
+        return groups;
+    }
+
+    /**
+     * @return true if the raw stats of the group are used by an analysis
+     */
+    private boolean isAnalysed(String group, Map<String, String> generalStats) {
+        return (config.isDetectConfigurationChanges() && SETTINGS.equals(group))
+                || (config.isSlabAnalysis() && (SLABS.equals(group) || ITEMS.equals(group)))
+                || (ExtstoreAnalyzer.isEnabled(generalStats) && EXTSTORE.equals(group));
+    }
+
+    private boolean isDue(String server, String group) {
+        return statsScheduler.isDue(server, group, config.getDetailStatsInterval(), config.getStaticStatsIntervalInMins());
+    }
+
+    /**
+     * Converts the keys of a stats group into metric paths, eg. "1:chunk_size" of "slabs" to "slabs|1|chunk_size".
+     * Non numeric values are skipped as they cannot be reported, as are the stats of the groups read unfiltered for an
+     * analysis which are not accepted by the {@link StatsFilter}.
+     */
+    private Map<String, String> prefixGroupStats(String group, Map<String, String> groupStats) {
+        Map<String, String> prefixed = new HashMap<String, String>();
+        StatsFilter.Selector selector = statsFilter.isAcceptAll() ? null : statsFilter.newSelector();
+        if(groupStats != null){
+            for(Map.Entry<String, String> entry : groupStats.entrySet()){
+                if(isNumeric(entry.getValue())){
+                    String path = StatsFilter.getStatPath(group, entry.getKey());
+                    if(selector == null || selector.accepts(path)){
+                        prefixed.put(path, entry.getValue());
+                    }
+                }
+            }
+        }
+        return prefixed;
+    }
+
+    /**
+     * Drops the stats which cannot be reported, eg. the version, command line and config file of mcrouter.
+     */
+    private static void retainNumeric(Map<String, String> stats) {
+        Iterator<String> it = stats.values().iterator();
+        while(it.hasNext()){
+            if(!isNumeric(it.next())){
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean isNumeric(String value) {
+        if(Strings.isNullOrEmpty(value)){
+            return false;
+        }
+        char first = value.charAt(0);
+        return (first >= '0' && first <= '9') || first == '-';
+    }
+
+    /**
+     * Adds the metrics of the tiered stats groups, processing the groups fetched on this run and serving the cached
+     * metrics of the groups which are not due.
+     * @param instance
+     * @param metricFactory
+     */
+    private void addTieredMetrics(InstanceMetric instance, MetricFactory<String> metricFactory) {
+        List<String> groups = new ArrayList<String>(config.getStatsGroups());
+        groups.add(StatsScheduler.GENERAL_STATIC);
+        if(config.isSlabAnalysis()){
+            groups.add(SLAB_ANALYSIS);
+        }
+        if(config.isConnectionAnalysis()){
+            groups.add(CONNECTION_ANALYSIS);
+        }
+        groups.add(EXTSTORE_ANALYSIS);
+        groups.add(PROXY_ANALYSIS);
+        for(String group : groups){
+            Map<String, String> groupStats = instance.getGroupStats().get(group);
+            boolean tiered = StatsScheduler.getTier(group) != StatsScheduler.Tier.HOT;
+            if(groupStats != null){
+                long runs = statsScheduler.getRunsSinceRefresh(instance.getServer(), group);
+                List<Metric> metrics = metricFactory.process(groupStats);
+                statsScheduler.update(instance.getServer(), group, metrics);
+                addMetrics(instance, metrics, tiered ? runs : null);
+            }
+            else{
+                List<Metric> cached = statsScheduler.getCached(instance.getServer(), group);
+                if(cached != null){
+                    addMetrics(instance, cached, 0L);
+                }
+            }
+        }
+    }
+
+
+    private static void addMetrics(InstanceMetric instance, List<Metric> metrics, Long runs) {
+        instance.getAllMetrics().addAll(metrics);
+        if(runs != null){
+            for(Metric metric : metrics){
+                instance.getTieredMetrics().put(metric, runs);
+            }
+        }
+    }
+
+
+    /**
+     * The last value of a metric of a non hot group and its average delta per run since the refresh before.
+     */
+    private static class TieredValue {
+        private final BigInteger value;
+        private final BigInteger deltaPerRun;
+
+        private TieredValue(BigInteger value, BigInteger deltaPerRun) {
+            this.value = value;
+            this.deltaPerRun = deltaPerRun;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * Folds the "stats conns" output of a server into aggregates per client source, i.e. the remote address or the subnet
+ * of the remote address. Only the top K sources with the most connections active within the last second are reported,
+ * ties broken by their connection count, the connections of the remaining sources being reported as "Other Sources".
+ * <ul>
+ *     <li>Count - the number of client connections of the source</li>
+ *     <li>Idle Under 1s, Idle 1s To 60s, Idle Over 60s - the connections by the time since their last command</li>
+ *     <li>State|&lt;state&gt; - the connections by their state, eg. "State|waiting" or "State|read"</li>
+ * </ul>
+ * The output is folded by an {@link Analysis} while it is read, memcached writing the stats of a connection on
+ * consecutive lines, so only the state of the current connection and the aggregates per source are kept. At most
+ * {@link #MAX_TRACKED_SOURCES} sources are aggregated, so that the memory used stays bounded on servers with many
+ * distinct clients.
+ */
+public class ConnectionAnalyzer {
+
+    public static final String CONNECTIONS = "Connections";
+    public static final String CLIENT_SOURCES = CONNECTIONS + METRICS_SEPARATOR + "Client Sources";
+    public static final String OTHER_SOURCES = "Other Sources";
+    public static final String COUNT = "Count";
+    public static final String IDLE_UNDER_1S = "Idle Under 1s";
+    public static final String IDLE_1S_TO_60S = "Idle 1s To 60s";
+    public static final String IDLE_OVER_60S = "Idle Over 60s";
+    public static final String STATE = "State";
+
+    static final int MAX_TRACKED_SOURCES = 4096;
+
+    private static final String ADDR = "addr";
+    private static final String STATE_KEY = "state";
+    private static final String SECS_SINCE_LAST_CMD = "secs_since_last_cmd";
+    private static final String LISTENING = "listening";
+    private static final String STATE_PREFIX = "conn_";
+
+    private static final Comparator<SourceStats> NOISIEST_FIRST = new Comparator<SourceStats>() {
+        public int compare(SourceStats s1, SourceStats s2) {
+            if (s1.idleUnder1s != s2.idleUnder1s) {
+                return s1.idleUnder1s > s2.idleUnder1s ? -1 : 1;
+            }
+            if (s1.count != s2.count) {
+                return s1.count > s2.count ? -1 : 1;
+            }
+            return s1.source.compareTo(s2.source);
+        }
+    };
+
+    private final int topK;
+    private final int subnetBits;
+
+    /**
+     * @param topK the number of sources to report
+     * @param subnetBits the prefix length of the IPv4 subnets to aggregate, 32 to aggregate per address
+     */
+    public ConnectionAnalyzer(int topK, int subnetBits) {
+        this.topK = Math.max(topK, 0);
+        this.subnetBits = Math.min(Math.max(subnetBits, 0), 32);
+    }
+
+    /**
+     * @return a new analysis to pass the "stats conns" output of a server to
+     */
+    public Analysis newAnalysis() {
+        return new Analysis();
+    }
+
+    /**
+     * @param addr eg. "tcp:10.0.0.1:45678", "tcp6:[::1]:45678" or "unix:/var/run/memcached.sock"
+     * @return the address or the subnet of the address without the port, usable in a metric path
+     */
+    String getSource(String addr) {
+        int colon = addr.indexOf(':');
+        String protocol = colon > 0 ? addr.substring(0, colon) : "";
+        String address = addr.substring(colon + 1);
+        if (protocol.startsWith("unix")) {
+            return "unix";
+        }
+        if (address.startsWith("[")) {
+            int end = address.indexOf(']');
+            address = address.substring(1, end > 0 ? end : address.length());
+            return address.replace(':', '_');
+        }
+        int port = address.lastIndexOf(':');
+        if (port > 0) {
+            address = address.substring(0, port);
+        }
+        return subnetBits < 32 ? getSubnet(address) : address;
+    }
+
+    private String getSubnet(String address) {
+        String[] octets = address.split("\\.");
+        if (octets.length != 4) {
+            return address;
+        }
+        long ip = 0;
+        try {
+            for (String octet : octets) {
+                ip = (ip << 8) | (Integer.parseInt(octet) & 0xff);
+            }
+        } catch (NumberFormatException e) {
+            return address;
+        }
+        long mask = subnetBits == 0 ? 0 : (0xffffffffL << (32 - subnetBits)) & 0xffffffffL;
+        ip &= mask;
+        return ((ip >> 24) & 0xff) + "." + ((ip >> 16) & 0xff) + "." + ((ip >> 8) & 0xff) + "." + (ip & 0xff)
+                + "_" + subnetBits;
+    }
+
+    /**
+     * @return the value of the digits between start and end, -1 if there are none or any other character
+     */
+    private static long parseLong(CharSequence value, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean regionEquals(CharSequence value, int start, String expected) {
+        if (value.length() - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (value.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionStartsWith(CharSequence value, String prefix) {
+        if (value.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (value.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Folds the "stats conns" output of a server, eg. "25:addr" = "tcp:10.0.0.1:45678", "25:state" = "conn_waiting",
+     * into the aggregates per source while it is read.
+     */
+    public class Analysis implements StatsHandler {
+        private final Map<String, SourceStats> sources = new HashMap<String, SourceStats>();
+        private final SourceStats other = new SourceStats(OTHER_SOURCES);
+        //the distinct states seen, without the "conn_" prefix, so that no string is created per connection
+        private final List<String> states = new ArrayList<String>();
+        private long fd = -1;
+        private String addr;
+        private String state;
+        private long secsSinceLastCmd;
+
+        private Analysis() {
+        }
+
+        public void stat(CharSequence key, CharSequence value) {
+            int colon = -1;
+            for (int i = 0; i < key.length() && colon < 0; i++) {
+                if (key.charAt(i) == ':') {
+                    colon = i;
+                }
+            }
+            long keyFd = colon > 0 ? parseLong(key, 0, colon) : -1;
+            if (keyFd < 0) {
+                return;
+            }
+            if (keyFd != fd) {
+                addConnection();
+                fd = keyFd;
+            }
+            if (regionEquals(key, colon + 1, ADDR)) {
+                addr = value.toString();
+            } else if (regionEquals(key, colon + 1, STATE_KEY)) {
+                state = getState(value);
+            } else if (regionEquals(key, colon + 1, SECS_SINCE_LAST_CMD)) {
+                secsSinceLastCmd = Math.max(parseLong(value, 0, value.length()), 0);
+            }
+        }
+
+        /**
+         * @return the analysis metrics keyed by their path
+         */
+        public Map<String, String> getMetrics() {
+            addConnection();
+            List<SourceStats> ranked = new ArrayList<SourceStats>(sources.values());
+            Collections.sort(ranked, NOISIEST_FIRST);
+            Map<String, String> analysis = new HashMap<String, String>();
+            analysis.put(CLIENT_SOURCES, String.valueOf(sources.size() + (other.count > 0 ? 1 : 0)));
+            for (int i = 0; i < ranked.size(); i++) {
+                if (i < topK) {
+                    ranked.get(i).putMetrics(analysis);
+                } else {
+                    other.merge(ranked.get(i));
+                }
+            }
+            if (other.count > 0) {
+                other.putMetrics(analysis);
+            }
+            return analysis;
+        }
+
+        /**
+         * Adds the connection read so far to the stats of its source and starts the next one.
+         */
+        private void addConnection() {
+            if (addr != null && !LISTENING.equals(state)) {
+                String source = getSource(addr);
+                SourceStats stats = sources.get(source);
+                if (stats == null) {
+                    if (sources.size() < MAX_TRACKED_SOURCES) {
+                        stats = new SourceStats(source);
+                        sources.put(source, stats);
+                    } else {
+                        stats = other;
+                    }
+                }
+                stats.add(state, secsSinceLastCmd);
+            }
+            fd = -1;
+            addr = null;
+            state = null;
+            secsSinceLastCmd = 0;
+        }
+
+        private String getState(CharSequence value) {
+            int start = regionStartsWith(value, STATE_PREFIX) ? STATE_PREFIX.length() : 0;
+            for (String known : states) {
+                if (regionEquals(value, start, known)) {
+                    return known;
+                }
+            }
+            String known = value.subSequence(start, value.length()).toString();
+            states.add(known);
+            return known;
+        }
+    }
+
+    private static class SourceStats {
+        private final String source;
+        private long count;
+        private long idleUnder1s;
+        private long idle1sTo60s;
+        private long idleOver60s;
+        private final Map<String, Long> states = new HashMap<String, Long>();
+
+        private SourceStats(String source) {
+            this.source = source;
+        }
+
+        private void add(String state, long secsSinceLastCmd) {
+            count++;
+            if (secsSinceLastCmd < 1) {
+                idleUnder1s++;
+            } else if (secsSinceLastCmd <= 60) {
+                idle1sTo60s++;
+            } else {
+                idleOver60s++;
+            }
+            if (state != null) {
+                addState(state, 1);
+            }
+        }
+
+        private void merge(SourceStats stats) {
+            count += stats.count;
+            idleUnder1s += stats.idleUnder1s;
+            idle1sTo60s += stats.idle1sTo60s;
+            idleOver60s += stats.idleOver60s;
+            for (Map.Entry<String, Long> entry : stats.states.entrySet()) {
+                addState(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private void addState(String state, long count) {
+            Long previous = states.get(state);
+            states.put(state, previous != null ? previous + count : count);
+        }
+
+        private void putMetrics(Map<String, String> analysis) {
+            String prefix = CONNECTIONS + METRICS_SEPARATOR + source + METRICS_SEPARATOR;
+            analysis.put(prefix + COUNT, String.valueOf(count));
+            analysis.put(prefix + IDLE_UNDER_1S, String.valueOf(idleUnder1s));
+            analysis.put(prefix + IDLE_1S_TO_60S, String.valueOf(idle1sTo60s));
+            analysis.put(prefix + IDLE_OVER_60S, String.valueOf(idleOver60s));
+            for (Map.Entry<String, Long> entry : states.entrySet()) {
+                analysis.put(prefix + STATE + METRICS_SEPARATOR + entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+    }
+}
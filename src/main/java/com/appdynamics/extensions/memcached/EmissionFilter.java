@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suppresses the re-emission of unchanged metric values. A value is emitted when it differs from the value last
+ * emitted for the metric path, or when the heartbeat interval has passed since the path was last emitted.
+ */
+public class EmissionFilter {
+
+    private final long heartbeatIntervalInMillis;
+    private final Cache<String, EmittedValue> lastEmitted;
+
+    public EmissionFilter(int heartbeatIntervalInMins) {
+        this.heartbeatIntervalInMillis = TimeUnit.MINUTES.toMillis(heartbeatIntervalInMins);
+        //a path which is not reported anymore is dropped after it missed two heartbeats
+        this.lastEmitted = CacheBuilder.newBuilder()
+                .expireAfterAccess(2 * heartbeatIntervalInMillis + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @param metricPath
+     * @param value the value to be reported, i.e. the delta for delta metrics
+     * @return true if the value has to be emitted, in which case it is recorded as the last emitted value of the path.
+     */
+    public boolean shouldEmit(String metricPath, BigInteger value) {
+        long now = System.currentTimeMillis();
+        EmittedValue previous = lastEmitted.getIfPresent(metricPath);
+        if (previous != null && previous.value.equals(value) && now - previous.time < heartbeatIntervalInMillis) {
+            return false;
+        }
+        if (previous != null) {
+            previous.value = value;
+            previous.time = now;
+        } else {
+            lastEmitted.put(metricPath, new EmittedValue(value, now));
+        }
+        return true;
+    }
+
+    private static class EmittedValue {
+        private BigInteger value;
+        private long time;
+
+        private EmittedValue(BigInteger value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
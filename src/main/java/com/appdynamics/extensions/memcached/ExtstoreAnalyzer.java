@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * Derives the flash usage of a server running with extstore from its general stats and its "stats extstore" output.
+ * The rates are computed from the counters of the previous sample of the server, over the uptime elapsed since then.
+ * <ul>
+ *     <li>Flash Hit Rate - the percentage of the get hits served from flash</li>
+ *     <li>Read Bytes Per Sec, Write Bytes Per Sec - the flash throughput</li>
+ *     <li>Memory Bytes, Flash Bytes, Flash Bytes Percent - the split of the stored bytes between memory and flash</li>
+ *     <li>Page Fill Percent - the percentage of the used flash pages holding live bytes, the remainder being
+ *     reclaimable by compaction. Refreshed when "stats extstore" is fetched on the detail tier</li>
+ * </ul>
+ * The extstore general stats which are gauges are reported as is instead of as a delta, see {@link #isGauge}.
+ */
+public class ExtstoreAnalyzer {
+
+    public static final String EXTSTORE = "Extstore";
+    public static final String FLASH_HIT_RATE = EXTSTORE + METRICS_SEPARATOR + "Flash Hit Rate";
+    public static final String READ_BYTES_PER_SEC = EXTSTORE + METRICS_SEPARATOR + "Read Bytes Per Sec";
+    public static final String WRITE_BYTES_PER_SEC = EXTSTORE + METRICS_SEPARATOR + "Write Bytes Per Sec";
+    public static final String MEMORY_BYTES = EXTSTORE + METRICS_SEPARATOR + "Memory Bytes";
+    public static final String FLASH_BYTES = EXTSTORE + METRICS_SEPARATOR + "Flash Bytes";
+    public static final String FLASH_BYTES_PERCENT = EXTSTORE + METRICS_SEPARATOR + "Flash Bytes Percent";
+    public static final String PAGE_FILL_PERCENT = EXTSTORE + METRICS_SEPARATOR + "Page Fill Percent";
+
+    private static final Set<String> GAUGES = ImmutableSet.of(Metrics.EXTSTORE_IO_QUEUE, Metrics.EXTSTORE_BYTES_USED,
+            Metrics.EXTSTORE_BYTES_FRAGMENTED, Metrics.EXTSTORE_PAGES_USED, Metrics.EXTSTORE_PAGES_FREE,
+            Metrics.EXTSTORE_OBJECTS_USED, Metrics.EXTSTORE_LIMIT_MAXBYTES);
+
+    private static final String PAGE_SIZE = "page_size";
+    private static final String PAGE_BYTES = ":bytes";
+
+    private final Map<String, Sample> previousSamples = new HashMap<String, Sample>();
+    private final Map<String, Long> pageFillPercents = new HashMap<String, Long>();
+
+    /**
+     * @return true if the general stats of the server contain extstore counters, i.e. the server runs with extstore
+     */
+    public static boolean isEnabled(Map<String, String> generalStats) {
+        return generalStats.containsKey(Metrics.EXTSTORE_BYTES_USED);
+    }
+
+    /**
+     * @return true for the extstore general stats which are gauges and are reported as is instead of as a delta
+     */
+    public static boolean isGauge(String metricPath) {
+        return GAUGES.contains(metricPath);
+    }
+
+    /**
+     * @param server
+     * @param generalStats the raw general stats
+     * @param extstoreStats the raw "stats extstore" output, or null if it was not fetched on this run
+     * @return the analysis metrics keyed by their path
+     */
+    public synchronized Map<String, String> analyze(String server, Map<String, String> generalStats, Map<String, String> extstoreStats) {
+        Sample current = new Sample(generalStats);
+        Sample previous = previousSamples.put(server, current);
+        Map<String, String> analysis = new HashMap<String, String>();
+
+        if (previous != null && current.uptime > previous.uptime && current.getHits >= previous.getHits) {
+            long elapsed = current.uptime - previous.uptime;
+            long getHits = current.getHits - previous.getHits;
+            long getExtstore = Math.max(current.getExtstore - previous.getExtstore, 0);
+            analysis.put(FLASH_HIT_RATE, String.valueOf(getHits > 0 ? Math.round(100.0 * getExtstore / getHits) : 0));
+            analysis.put(READ_BYTES_PER_SEC, String.valueOf(Math.max(current.bytesRead - previous.bytesRead, 0) / elapsed));
+            analysis.put(WRITE_BYTES_PER_SEC, String.valueOf(Math.max(current.bytesWritten - previous.bytesWritten, 0) / elapsed));
+        }
+
+        long total = current.memoryBytes + current.flashBytes;
+        analysis.put(MEMORY_BYTES, String.valueOf(current.memoryBytes));
+        analysis.put(FLASH_BYTES, String.valueOf(current.flashBytes));
+        analysis.put(FLASH_BYTES_PERCENT, String.valueOf(total > 0 ? Math.round(100.0 * current.flashBytes / total) : 0));
+
+        if (extstoreStats != null) {
+            pageFillPercents.put(server, getPageFillPercent(extstoreStats, current.pagesUsed));
+        }
+        Long pageFillPercent = pageFillPercents.get(server);
+        if (pageFillPercent != null) {
+            analysis.put(PAGE_FILL_PERCENT, String.valueOf(pageFillPercent));
+        }
+        return analysis;
+    }
+
+    /**
+     * Drops the previous samples of the servers which are no longer monitored.
+     */
+    public synchronized void retain(Collection<String> servers) {
+        previousSamples.keySet().retainAll(servers);
+        pageFillPercents.keySet().retainAll(servers);
+    }
+
+    private static long getPageFillPercent(Map<String, String> extstoreStats, long pagesUsed) {
+        long pageSize = parseLong(extstoreStats.get(PAGE_SIZE));
+        long liveBytes = 0;
+        for (Map.Entry<String, String> entry : extstoreStats.entrySet()) {
+            if (entry.getKey().endsWith(PAGE_BYTES)) {
+                liveBytes += parseLong(entry.getValue());
+            }
+        }
+        long capacity = pageSize * pagesUsed;
+        return capacity > 0 ? Math.min(Math.round(100.0 * liveBytes / capacity), 100) : 0;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static class Sample {
+        private final long uptime;
+        private final long getHits;
+        private final long getExtstore;
+        private final long bytesRead;
+        private final long bytesWritten;
+        private final long memoryBytes;
+        private final long flashBytes;
+        private final long pagesUsed;
+
+        private Sample(Map<String, String> generalStats) {
+            this.uptime = parseLong(generalStats.get(Metrics.UPTIME));
+            this.getHits = parseLong(generalStats.get(Metrics.GET_HITS));
+            this.getExtstore = parseLong(generalStats.get(Metrics.GET_EXTSTORE));
+            this.bytesRead = parseLong(generalStats.get(Metrics.EXTSTORE_BYTES_READ));
+            this.bytesWritten = parseLong(generalStats.get(Metrics.EXTSTORE_BYTES_WRITTEN));
+            this.memoryBytes = parseLong(generalStats.get(Metrics.BYTES));
+            this.flashBytes = parseLong(generalStats.get(Metrics.EXTSTORE_BYTES_USED));
+            this.pagesUsed = parseLong(generalStats.get(Metrics.EXTSTORE_PAGES_USED));
+        }
+    }
+}
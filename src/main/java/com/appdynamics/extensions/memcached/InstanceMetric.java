@@ -12,14 +12,20 @@ import com.appdynamics.extensions.util.metrics.Metric;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class InstanceMetric {
 
     private String displayName;
+    private String server;
     private Map<String,String> metricsMap;
+    private Map<String,Map<String,String>> groupStats;
     private List<Metric> allMetrics;
+    private Map<Metric, Long> tieredMetrics;
+    private boolean configurationChanged;
+    private boolean failed;
 
 
     public InstanceMetric(String displayName,Map<String,String> metricsMap){
@@ -35,6 +41,17 @@ public class InstanceMetric {
         this.displayName = displayName;
     }
 
+    /**
+     * The address of the server, eg. "hostname/ip:port" or "unix:/path/to/socket".
+     */
+    public String getServer() {
+        return server;
+    }
+
+    public void setServer(String server) {
+        this.server = server;
+    }
+
     public Map<String, String> getMetricsMap() {
         if(metricsMap == null){
             metricsMap = new HashMap<String, String>();
@@ -46,6 +63,20 @@ public class InstanceMetric {
         this.metricsMap = metricsMap;
     }
 
+    /**
+     * The stats groups fetched from the server on this run, keyed by the group name.
+     */
+    public Map<String, Map<String, String>> getGroupStats() {
+        if(groupStats == null){
+            groupStats = new HashMap<String, Map<String, String>>();
+        }
+        return groupStats;
+    }
+
+    public void setGroupStats(Map<String, Map<String, String>> groupStats) {
+        this.groupStats = groupStats;
+    }
+
     public List<Metric> getAllMetrics() {
         if(allMetrics == null){
             allMetrics = new ArrayList<Metric>();
@@ -56,4 +87,34 @@ public class InstanceMetric {
     public void setAllMetrics(List<Metric> allMetrics) {
         this.allMetrics = allMetrics;
     }
+
+    /**
+     * The metrics of the non hot stats groups, mapped to the number of runs since the previous refresh of their group,
+     * or to 0 for the metrics served from the cache.
+     */
+    public Map<Metric, Long> getTieredMetrics() {
+        if(tieredMetrics == null){
+            tieredMetrics = new IdentityHashMap<Metric, Long>();
+        }
+        return tieredMetrics;
+    }
+
+    /**
+     * @return true if the server could not be collected on this run
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public boolean isConfigurationChanged() {
+        return configurationChanged;
+    }
+
+    public void setConfigurationChanged(boolean configurationChanged) {
+        this.configurationChanged = configurationChanged;
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.crypto.CryptoUtil;
+import com.appdynamics.extensions.memcached.config.Cluster;
+import com.appdynamics.extensions.memcached.config.Configuration;
+import com.appdynamics.extensions.memcached.config.Server;
+import com.appdynamics.extensions.yml.YmlReader;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.appdynamics.TaskInputArgs.ENCRYPTION_KEY;
+import static com.appdynamics.TaskInputArgs.PASSWORD_ENCRYPTED;
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+
+/**
+ * Collects the metrics of all the configured clusters and reports them to a {@link MetricPrinter}. Shared by the machine
+ * agent monitor and the standalone collector.
+ * <p>
+ * The clusters are collected in parallel, every cluster on its own executor and against its own deadline, derived from
+ * the timeout per server and the number of servers collected concurrently. The metrics of a cluster are only reported
+ * if it completed within its deadline, and a failing cluster does not prevent the others from being reported.
+ */
+public class MemcachedCollector {
+
+    public static final Logger logger = LoggerFactory.getLogger(MemcachedCollector.class);
+    private volatile Configuration config;
+    private final Map<String, ClusterCollector> clusterCollectors = new LinkedHashMap<String, ClusterCollector>();
+    private final ExecutorService clusterExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("memcached-cluster-%d").setDaemon(true).build());
+
+
+    /**
+     * Reads the config from the file, validates the server types, compiles the stats filter and decrypts the passwords.
+     * @param file
+     * @return Configuration
+     * @throws IllegalArgumentException if the config cannot be read, a server has an unknown type or a stats filter
+     * pattern is invalid
+     */
+    public static Configuration readConfig(File file) {
+        Configuration config = YmlReader.readFromFile(file, Configuration.class);
+        if (config != null) {
+            for(Cluster cluster : config.getResolvedClusters()) {
+                if(cluster.getServers() == null) {
+                    continue;
+                }
+                for(Server server : cluster.getServers()) {
+                    if(!Server.TYPES.contains(server.getType())) {
+                        throw new IllegalArgumentException("Unknown type " + server.getType() + " of the server " + server.getServer()
+                                + " in " + file.getAbsolutePath() + ", expected one of " + Server.TYPES);
+                    }
+                }
+            }
+            //compile the stats filter once, failing on an invalid pattern
+            config.getStatsFilter();
+            //decrypt password
+            if(config.getEncryptionKey() != null){
+                for(Cluster cluster : config.getResolvedClusters()) {
+                    if(cluster.getServers() == null) {
+                        continue;
+                    }
+                    for(Server server : cluster.getServers()) {
+                        Map cryptoMap = Maps.newHashMap();
+                        cryptoMap.put(PASSWORD_ENCRYPTED,server.getEncryptedPassword());
+                        cryptoMap.put(ENCRYPTION_KEY,config.getEncryptionKey());
+                        server.setPassword(CryptoUtil.getPassword(cryptoMap));
+                    }
+                }
+            }
+            return config;
+        }
+        else {
+            throw new IllegalArgumentException("The config cannot be initialized from the file " + file.getAbsolutePath());
+        }
+    }
+
+    public Configuration getConfig() {
+        return config;
+    }
+
+    /**
+     * Applies a new config. The collectors of the clusters which are still configured keep their state.
+     * @param config
+     * @throws IllegalArgumentException if a stats filter pattern is invalid, in which case the current config is kept
+     */
+    public synchronized void setConfig(Configuration config) {
+        //compiled before any collector is changed
+        config.getStatsFilter();
+        Map<String, ClusterCollector> previous = new HashMap<String, ClusterCollector>(clusterCollectors);
+        clusterCollectors.clear();
+        for(Cluster cluster : config.getResolvedClusters()){
+            String key = cluster.getName() + METRICS_SEPARATOR + cluster.getMetricPrefix();
+            ClusterCollector collector = previous.remove(key);
+            if(collector != null){
+                collector.setConfig(config, cluster);
+            }
+            else{
+                collector = new ClusterCollector(config, cluster);
+            }
+            clusterCollectors.put(key, collector);
+        }
+        for(ClusterCollector removed : previous.values()){
+            removed.shutdown();
+        }
+        this.config = config;
+    }
+
+
+    /**
+     * Runs a collection cycle and reports all the metrics to the printer.
+     * @param printer
+     * @throws Exception if any of the clusters failed or timed out, after the metrics of the others were reported.
+     */
+    public void collect(MetricPrinter printer) throws Exception {
+        if(config == null){
+            throw new IllegalStateException("The config is not initialized");
+        }
+        List<ClusterCollector> collectors;
+        synchronized (this) {
+            collectors = new ArrayList<ClusterCollector>(clusterCollectors.values());
+        }
+        long start = System.currentTimeMillis();
+        List<Future<BufferedMetricPrinter>> futures = new ArrayList<Future<BufferedMetricPrinter>>();
+        for(final ClusterCollector collector : collectors){
+            futures.add(clusterExecutor.submit(new Callable<BufferedMetricPrinter>() {
+                public BufferedMetricPrinter call() throws Exception {
+                    BufferedMetricPrinter buffer = new BufferedMetricPrinter();
+                    collector.collect(buffer);
+                    return buffer;
+                }
+            }));
+        }
+        int failures = 0;
+        for(int i = 0; i < collectors.size(); i++){
+            ClusterCollector collector = collectors.get(i);
+            Cluster cluster = collector.getCluster();
+            Future<BufferedMetricPrinter> future = futures.get(i);
+            try {
+                //every cluster is waited for until its own deadline
+                long remaining = start + cluster.getDeadline() - System.currentTimeMillis();
+                future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS).printTo(printer);
+            }
+            catch(TimeoutException e){
+                future.cancel(true);
+                failures++;
+                logger.error("The collection of the cluster {} did not complete within {} ms", cluster.getMetricPrefix(), cluster.getDeadline());
+                collector.printFailure(printer);
+            }
+            catch(ExecutionException e){
+                failures++;
+                logger.error("The collection of the cluster {} failed", cluster.getMetricPrefix(), e.getCause());
+                collector.printFailure(printer);
+            }
+        }
+        if(failures > 0){
+            throw new Exception(failures + " of " + collectors.size() + " clusters failed");
+        }
+    }
+}
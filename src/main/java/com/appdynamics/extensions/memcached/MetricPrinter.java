@@ -0,0 +1,16 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+/**
+ * Receives the metrics reported by the {@link MemcachedCollector}.
+ */
+public interface MetricPrinter {
+
+    void printMetric(String metricName, String metricValue, String aggType, String timeRollupType, String clusterRollupType);
+}
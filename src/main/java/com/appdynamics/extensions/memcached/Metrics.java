@@ -52,6 +52,32 @@ public class Metrics {
     public static final String EXPIRED_UNFETCHED = "expired_unfetched";
     public static final String EVICTED_UNFETCHED = "evicted_unfetched";
     public static final String CRAWLER_RECLAIMED = "crawler_reclaimed";
+    public static final String UPTIME = "uptime";
+    public static final String GET_EXTSTORE = "get_extstore";
+    public static final String GET_ABORTED_EXTSTORE = "get_aborted_extstore";
+    public static final String GET_OOM_EXTSTORE = "get_oom_extstore";
+    public static final String RECACHE_FROM_EXTSTORE = "recache_from_extstore";
+    public static final String MISS_FROM_EXTSTORE = "miss_from_extstore";
+    public static final String BADCRC_FROM_EXTSTORE = "badcrc_from_extstore";
+    public static final String EXTSTORE_COMPACT_LOST = "extstore_compact_lost";
+    public static final String EXTSTORE_COMPACT_RESCUES = "extstore_compact_rescues";
+    public static final String EXTSTORE_COMPACT_SKIPPED = "extstore_compact_skipped";
+    public static final String EXTSTORE_PAGE_ALLOCS = "extstore_page_allocs";
+    public static final String EXTSTORE_PAGE_EVICTIONS = "extstore_page_evictions";
+    public static final String EXTSTORE_PAGE_RECLAIMS = "extstore_page_reclaims";
+    public static final String EXTSTORE_PAGES_FREE = "extstore_pages_free";
+    public static final String EXTSTORE_PAGES_USED = "extstore_pages_used";
+    public static final String EXTSTORE_OBJECTS_EVICTED = "extstore_objects_evicted";
+    public static final String EXTSTORE_OBJECTS_READ = "extstore_objects_read";
+    public static final String EXTSTORE_OBJECTS_WRITTEN = "extstore_objects_written";
+    public static final String EXTSTORE_OBJECTS_USED = "extstore_objects_used";
+    public static final String EXTSTORE_BYTES_EVICTED = "extstore_bytes_evicted";
+    public static final String EXTSTORE_BYTES_WRITTEN = "extstore_bytes_written";
+    public static final String EXTSTORE_BYTES_READ = "extstore_bytes_read";
+    public static final String EXTSTORE_BYTES_USED = "extstore_bytes_used";
+    public static final String EXTSTORE_BYTES_FRAGMENTED = "extstore_bytes_fragmented";
+    public static final String EXTSTORE_LIMIT_MAXBYTES = "extstore_limit_maxbytes";
+    public static final String EXTSTORE_IO_QUEUE = "extstore_io_queue";
     /*Current number of items stored*/
     private String currentItems;
 
@@ -166,6 +192,84 @@ public class Metrics {
     /*Total items freed by LRU Crawler*/
     private String crawlerReclaimed;
 
+    /*Number of secs since the server started*/
+    private String uptime;
+
+    /*Number of get hits which were served from extstore*/
+    private String getExtstore;
+
+    /*Number of extstore reads which were aborted*/
+    private String getAbortedExtstore;
+
+    /*Number of extstore reads which failed for lack of memory*/
+    private String getOomExtstore;
+
+    /*Number of items read from extstore and recached into memory*/
+    private String recacheFromExtstore;
+
+    /*Number of items found in memory but not in extstore*/
+    private String missFromExtstore;
+
+    /*Number of extstore reads with a bad checksum*/
+    private String badCrcFromExtstore;
+
+    /*Number of items lost while compacting extstore pages*/
+    private String extstoreCompactLost;
+
+    /*Number of items moved to a new page while compacting extstore pages*/
+    private String extstoreCompactRescues;
+
+    /*Number of items skipped while compacting extstore pages*/
+    private String extstoreCompactSkipped;
+
+    /*Number of extstore pages allocated*/
+    private String extstorePageAllocs;
+
+    /*Number of extstore pages evicted*/
+    private String extstorePageEvictions;
+
+    /*Number of extstore pages reclaimed empty*/
+    private String extstorePageReclaims;
+
+    /*Number of free extstore pages*/
+    private String extstorePagesFree;
+
+    /*Number of used extstore pages*/
+    private String extstorePagesUsed;
+
+    /*Number of items evicted from extstore*/
+    private String extstoreObjectsEvicted;
+
+    /*Number of items read from extstore*/
+    private String extstoreObjectsRead;
+
+    /*Number of items written to extstore*/
+    private String extstoreObjectsWritten;
+
+    /*Number of items currently stored in extstore*/
+    private String extstoreObjectsUsed;
+
+    /*Number of bytes evicted from extstore*/
+    private String extstoreBytesEvicted;
+
+    /*Number of bytes written to extstore*/
+    private String extstoreBytesWritten;
+
+    /*Number of bytes read from extstore*/
+    private String extstoreBytesRead;
+
+    /*Number of bytes currently stored in extstore*/
+    private String extstoreBytesUsed;
+
+    /*Number of bytes of the used extstore pages holding dead items*/
+    private String extstoreBytesFragmented;
+
+    /*Number of bytes extstore is allowed to use*/
+    private String extstoreLimitMaxBytes;
+
+    /*Number of extstore IO requests waiting in the queue*/
+    private String extstoreIoQueue;
+
     public Metrics(Map<String,String> metrics) {
         this.currentItems = metrics.get(CURR_ITEMS);
         this.totalItems = metrics.get(TOTAL_ITEMS);
@@ -205,6 +309,32 @@ public class Metrics {
         this.expiredUnfetched = metrics.get(EXPIRED_UNFETCHED);
         this.evictedUnfetched = metrics.get(EVICTED_UNFETCHED);
         this.crawlerReclaimed = metrics.get(CRAWLER_RECLAIMED);
+        this.uptime = metrics.get(UPTIME);
+        this.getExtstore = metrics.get(GET_EXTSTORE);
+        this.getAbortedExtstore = metrics.get(GET_ABORTED_EXTSTORE);
+        this.getOomExtstore = metrics.get(GET_OOM_EXTSTORE);
+        this.recacheFromExtstore = metrics.get(RECACHE_FROM_EXTSTORE);
+        this.missFromExtstore = metrics.get(MISS_FROM_EXTSTORE);
+        this.badCrcFromExtstore = metrics.get(BADCRC_FROM_EXTSTORE);
+        this.extstoreCompactLost = metrics.get(EXTSTORE_COMPACT_LOST);
+        this.extstoreCompactRescues = metrics.get(EXTSTORE_COMPACT_RESCUES);
+        this.extstoreCompactSkipped = metrics.get(EXTSTORE_COMPACT_SKIPPED);
+        this.extstorePageAllocs = metrics.get(EXTSTORE_PAGE_ALLOCS);
+        this.extstorePageEvictions = metrics.get(EXTSTORE_PAGE_EVICTIONS);
+        this.extstorePageReclaims = metrics.get(EXTSTORE_PAGE_RECLAIMS);
+        this.extstorePagesFree = metrics.get(EXTSTORE_PAGES_FREE);
+        this.extstorePagesUsed = metrics.get(EXTSTORE_PAGES_USED);
+        this.extstoreObjectsEvicted = metrics.get(EXTSTORE_OBJECTS_EVICTED);
+        this.extstoreObjectsRead = metrics.get(EXTSTORE_OBJECTS_READ);
+        this.extstoreObjectsWritten = metrics.get(EXTSTORE_OBJECTS_WRITTEN);
+        this.extstoreObjectsUsed = metrics.get(EXTSTORE_OBJECTS_USED);
+        this.extstoreBytesEvicted = metrics.get(EXTSTORE_BYTES_EVICTED);
+        this.extstoreBytesWritten = metrics.get(EXTSTORE_BYTES_WRITTEN);
+        this.extstoreBytesRead = metrics.get(EXTSTORE_BYTES_READ);
+        this.extstoreBytesUsed = metrics.get(EXTSTORE_BYTES_USED);
+        this.extstoreBytesFragmented = metrics.get(EXTSTORE_BYTES_FRAGMENTED);
+        this.extstoreLimitMaxBytes = metrics.get(EXTSTORE_LIMIT_MAXBYTES);
+        this.extstoreIoQueue = metrics.get(EXTSTORE_IO_QUEUE);
     }
 
     public String getCurrentItems() {
@@ -358,4 +488,108 @@ public class Metrics {
     public String getCrawlerReclaimed() {
         return crawlerReclaimed;
     }
+
+    public String getUptime() {
+        return uptime;
+    }
+
+    public String getGetExtstore() {
+        return getExtstore;
+    }
+
+    public String getGetAbortedExtstore() {
+        return getAbortedExtstore;
+    }
+
+    public String getGetOomExtstore() {
+        return getOomExtstore;
+    }
+
+    public String getRecacheFromExtstore() {
+        return recacheFromExtstore;
+    }
+
+    public String getMissFromExtstore() {
+        return missFromExtstore;
+    }
+
+    public String getBadCrcFromExtstore() {
+        return badCrcFromExtstore;
+    }
+
+    public String getExtstoreCompactLost() {
+        return extstoreCompactLost;
+    }
+
+    public String getExtstoreCompactRescues() {
+        return extstoreCompactRescues;
+    }
+
+    public String getExtstoreCompactSkipped() {
+        return extstoreCompactSkipped;
+    }
+
+    public String getExtstorePageAllocs() {
+        return extstorePageAllocs;
+    }
+
+    public String getExtstorePageEvictions() {
+        return extstorePageEvictions;
+    }
+
+    public String getExtstorePageReclaims() {
+        return extstorePageReclaims;
+    }
+
+    public String getExtstorePagesFree() {
+        return extstorePagesFree;
+    }
+
+    public String getExtstorePagesUsed() {
+        return extstorePagesUsed;
+    }
+
+    public String getExtstoreObjectsEvicted() {
+        return extstoreObjectsEvicted;
+    }
+
+    public String getExtstoreObjectsRead() {
+        return extstoreObjectsRead;
+    }
+
+    public String getExtstoreObjectsWritten() {
+        return extstoreObjectsWritten;
+    }
+
+    public String getExtstoreObjectsUsed() {
+        return extstoreObjectsUsed;
+    }
+
+    public String getExtstoreBytesEvicted() {
+        return extstoreBytesEvicted;
+    }
+
+    public String getExtstoreBytesWritten() {
+        return extstoreBytesWritten;
+    }
+
+    public String getExtstoreBytesRead() {
+        return extstoreBytesRead;
+    }
+
+    public String getExtstoreBytesUsed() {
+        return extstoreBytesUsed;
+    }
+
+    public String getExtstoreBytesFragmented() {
+        return extstoreBytesFragmented;
+    }
+
+    public String getExtstoreLimitMaxBytes() {
+        return extstoreLimitMaxBytes;
+    }
+
+    public String getExtstoreIoQueue() {
+        return extstoreIoQueue;
+    }
 }
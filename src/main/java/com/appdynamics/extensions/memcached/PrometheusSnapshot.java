@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.base.Charsets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * Collects the metrics of a collection cycle and renders them once per cycle in the Prometheus text exposition format.
+ * A cycle is rendered into a byte buffer reused across the cycles and published as an immutable byte array, so scrapers
+ * are served the latest complete snapshot without triggering any memcached round trip, and a slow scraper never holds
+ * a lock needed by the collection.
+ * <p>
+ * A metric path "prefix|displayName|slabs|1|chunk_size" is exposed as
+ * memcached_slabs_chunk_size{server="displayName",slab="1"}, with an additional cluster label if the prefix belongs to a
+ * named cluster. The slab classes, proxy destinations and routes, and client sources are labels too, see
+ * {@link #LABELLED_SEGMENTS}, so that each of them is a series of a single family.
+ * <p>
+ * Every family is a gauge: the counters are printed as their delta over the collection interval, as they are reported
+ * to the machine agent, so they are to be used as is, eg. with avg_over_time(), and not with rate().
+ */
+public class PrometheusSnapshot implements MetricPrinter {
+
+    private static final String NAME_PREFIX = "memcached_";
+    /* the path prefixes followed by a segment exposed as a label, and the name of the label */
+    private static final String[][] LABELLED_SEGMENTS = {
+            {"slabs" + METRICS_SEPARATOR, "slab"},
+            {"items" + METRICS_SEPARATOR, "slab"},
+            {ProxyStatsAnalyzer.DESTINATIONS + METRICS_SEPARATOR, "destination"},
+            {ProxyStatsAnalyzer.ROUTES + METRICS_SEPARATOR, "route"},
+            {ConnectionAnalyzer.CONNECTIONS + METRICS_SEPARATOR, "source"}};
+
+    private final Map<String, List<String>> samples = new TreeMap<String, List<String>>();
+    private volatile Map<String, String> clusterPrefixes = new TreeMap<String, String>();
+    private volatile Set<String> displayNames = new HashSet<String>();
+    private final SnapshotBuffer buffer = new SnapshotBuffer();
+    private volatile byte[] published = new byte[0];
+
+    /**
+     * Sets the metric prefixes, mapped to the name of their cluster or null, and the display names which are stripped
+     * from the metric paths.
+     */
+    public void setMetricPaths(Map<String, String> clusterPrefixes, Collection<String> displayNames) {
+        //the longest prefixes first, as the prefix of a named cluster defaults to a child of the top level prefix
+        Map<String, String> sorted = new TreeMap<String, String>(new Comparator<String>() {
+            public int compare(String a, String b) {
+                return a.length() != b.length() ? b.length() - a.length() : a.compareTo(b);
+            }
+        });
+        sorted.putAll(clusterPrefixes);
+        this.clusterPrefixes = sorted;
+        this.displayNames = new HashSet<String>(displayNames);
+    }
+
+    public synchronized void printMetric(String metricName, String metricValue, String aggType, String timeRollupType, String clusterRollupType) {
+        String path = metricName;
+        StringBuilder labels = new StringBuilder();
+        for (Map.Entry<String, String> prefix : clusterPrefixes.entrySet()) {
+            if (path.startsWith(prefix.getKey())) {
+                path = path.substring(prefix.getKey().length());
+                if (prefix.getValue() != null) {
+                    labels.append("cluster=\"").append(escape(prefix.getValue())).append('"');
+                }
+                break;
+            }
+        }
+        int separator = path.indexOf(METRICS_SEPARATOR);
+        if (separator > 0 && displayNames.contains(path.substring(0, separator))) {
+            labels.append(labels.length() > 0 ? "," : "").append("server=\"").append(escape(path.substring(0, separator))).append('"');
+            path = path.substring(separator + 1);
+        }
+        path = extractLabel(path, labels);
+        String label = labels.length() > 0 ? "{" + labels + "}" : "";
+        String name = toMetricName(path);
+        List<String> family = samples.get(name);
+        if (family == null) {
+            family = new ArrayList<String>();
+            samples.put(name, family);
+        }
+        family.add(name + label + " " + metricValue + "\n");
+    }
+
+    /**
+     * Renders the metrics printed since the previous publish and makes them the snapshot served to the scrapers.
+     */
+    public synchronized void publish() {
+        buffer.reset();
+        for (Map.Entry<String, List<String>> family : samples.entrySet()) {
+            write(buffer, "# TYPE " + family.getKey() + " gauge\n");
+            for (String sample : family.getValue()) {
+                write(buffer, sample);
+            }
+        }
+        samples.clear();
+        published = buffer.toByteArray();
+    }
+
+    /**
+     * Writes the published snapshot to the stream. No lock is held while writing.
+     */
+    public void writeTo(OutputStream out, SnapshotWriter writer) throws IOException {
+        byte[] snapshot = published;
+        writer.begin(snapshot.length);
+        out.write(snapshot);
+    }
+
+    private static void write(SnapshotBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(Charsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Moves the segment of the path which names a slab class, a destination, a route or a source into the labels.
+     * The segment is only a label if other segments follow it, eg. not in "Proxy|Destinations|Count", except for the
+     * routes whose value is the last segment, eg. "Proxy|Routes|&lt;name&gt;".
+     * @return the path without the segment
+     */
+    private static String extractLabel(String path, StringBuilder labels) {
+        for (String[] labelled : LABELLED_SEGMENTS) {
+            if (!path.startsWith(labelled[0])) {
+                continue;
+            }
+            int start = labelled[0].length();
+            int end = path.indexOf(METRICS_SEPARATOR, start);
+            String segment = path.substring(start, end > 0 ? end : path.length());
+            boolean route = labelled[0].startsWith(ProxyStatsAnalyzer.ROUTES);
+            if (segment.length() == 0 || (end < 0 && (!route || ProxyStatsAnalyzer.COUNT.equals(segment)))) {
+                return path;
+            }
+            labels.append(labels.length() > 0 ? "," : "").append(labelled[1]).append("=\"").append(escape(segment)).append('"');
+            return end > 0 ? path.substring(0, start) + path.substring(end + 1) : path.substring(0, start - 1);
+        }
+        return path;
+    }
+
+    private static String toMetricName(String path) {
+        StringBuilder name = new StringBuilder(NAME_PREFIX.length() + path.length());
+        name.append(NAME_PREFIX);
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            name.append(valid ? Character.toLowerCase(c) : '_');
+        }
+        return name.toString();
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Called with the size of the snapshot before its bytes are written, eg. to send the response headers.
+     */
+    public interface SnapshotWriter {
+        void begin(int size) throws IOException;
+    }
+
+    /* reset() keeps the allocated array, so the buffer only grows until it fits a whole snapshot */
+    private static class SnapshotBuffer extends ByteArrayOutputStream {
+        private SnapshotBuffer() {
+            super(8192);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * Maps the stats of a routing proxy in front of memcached pools into metrics, bounding their cardinality to the busiest
+ * destinations and routes.
+ * <ul>
+ *     <li>mcrouter - "stats servers" is mapped per destination to "Proxy|Destinations|&lt;host_port&gt;|..." with the
+ *     average latency, the pending and inflight requests, the connections by state and the request counters by result,
+ *     eg. "Results|found" or "Results|timeout"</li>
+ *     <li>memcached proxy - "stats proxy" is mapped to "Proxy|&lt;proxy_stat&gt;" for the proxy counters, and to
+ *     "Proxy|Routes|&lt;name&gt;" for the counters defined by the route configuration</li>
+ * </ul>
+ * The request counters are reported as is and go through the delta calculation like the general stats, while the
+ * latencies, queue depths, connection states and counts are gauges, see {@link #isGauge}. Only the destinations and
+ * routes with the most requests are reported, ranked by their cumulative counters so the reported set is stable.
+ */
+public class ProxyStatsAnalyzer {
+
+    public static final String PROXY = "Proxy";
+    public static final String DESTINATIONS = PROXY + METRICS_SEPARATOR + "Destinations";
+    public static final String ROUTES = PROXY + METRICS_SEPARATOR + "Routes";
+    public static final String COUNT = "Count";
+    public static final String AVG_LATENCY_US = "Avg Latency Us";
+    public static final String PENDING_REQUESTS = "Pending Requests";
+    public static final String INFLIGHT_REQUESTS = "Inflight Requests";
+    public static final String STATES = "States";
+    public static final String RESULTS = "Results";
+
+    private static final String PROXY_STAT_PREFIX = "proxy_";
+    private static final String ACTIVE_SUFFIX = "_active";
+    private static final Set<String> CONNECTION_STATES = ImmutableSet.of("new", "up", "down", "closed", "tko");
+
+    private static final Comparator<Map.Entry<String, Long>> BUSIEST_FIRST = new Comparator<Map.Entry<String, Long>>() {
+        public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+            int byRequests = e2.getValue().compareTo(e1.getValue());
+            return byRequests != 0 ? byRequests : e1.getKey().compareTo(e2.getKey());
+        }
+    };
+
+    private final int maxDestinations;
+    private final int maxRoutes;
+
+    public ProxyStatsAnalyzer(int maxDestinations, int maxRoutes) {
+        this.maxDestinations = Math.max(maxDestinations, 0);
+        this.maxRoutes = Math.max(maxRoutes, 0);
+    }
+
+    /**
+     * @param servers the raw "stats servers" output of mcrouter, eg.
+     *                "10.0.0.1:11211:ascii:plain:notcompressed-1000" = "avg_latency_us:302.4 pending_reqs:0
+     *                inflight_reqs:1 avg_retrans_ratio:0.0000 up:2; found:120 notfound:15 timeout:1"
+     * @return the destination metrics keyed by their path
+     */
+    public Map<String, String> analyzeDestinations(Map<String, String> servers) {
+        Map<String, Map<String, String>> destinations = new HashMap<String, Map<String, String>>();
+        Map<String, Long> requests = new HashMap<String, Long>();
+        for (Map.Entry<String, String> entry : servers.entrySet()) {
+            String destination = getDestination(entry.getKey());
+            Map<String, String> metrics = new HashMap<String, String>();
+            long total = 0;
+            for (String token : entry.getValue().split("\\s+")) {
+                int colon = token.lastIndexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = token.substring(0, colon);
+                String value = token.substring(colon + 1);
+                if (value.endsWith(";")) {
+                    value = value.substring(0, value.length() - 1);
+                }
+                long number = parseLong(value);
+                if ("avg_latency_us".equals(name)) {
+                    metrics.put(AVG_LATENCY_US, String.valueOf(number));
+                } else if ("pending_reqs".equals(name)) {
+                    metrics.put(PENDING_REQUESTS, String.valueOf(number));
+                } else if ("inflight_reqs".equals(name)) {
+                    metrics.put(INFLIGHT_REQUESTS, String.valueOf(number));
+                } else if (CONNECTION_STATES.contains(name)) {
+                    metrics.put(STATES + METRICS_SEPARATOR + name, String.valueOf(number));
+                } else if (!name.endsWith("_ratio")) {
+                    metrics.put(RESULTS + METRICS_SEPARATOR + name, String.valueOf(number));
+                    total += number;
+                }
+            }
+            destinations.put(destination, metrics);
+            requests.put(destination, total);
+        }
+
+        Map<String, String> analysis = new HashMap<String, String>();
+        analysis.put(DESTINATIONS + METRICS_SEPARATOR + COUNT, String.valueOf(destinations.size()));
+        for (String destination : getBusiest(requests, maxDestinations)) {
+            String prefix = DESTINATIONS + METRICS_SEPARATOR + destination + METRICS_SEPARATOR;
+            for (Map.Entry<String, String> metric : destinations.get(destination).entrySet()) {
+                analysis.put(prefix + metric.getKey(), metric.getValue());
+            }
+        }
+        return analysis;
+    }
+
+    /**
+     * @param proxyStats the raw "stats proxy" output of the memcached proxy
+     * @return the proxy and route metrics keyed by their path
+     */
+    public Map<String, String> analyzeRoutes(Map<String, String> proxyStats) {
+        Map<String, String> analysis = new HashMap<String, String>();
+        Map<String, Long> routes = new HashMap<String, Long>();
+        for (Map.Entry<String, String> entry : proxyStats.entrySet()) {
+            if (entry.getKey().startsWith(PROXY_STAT_PREFIX)) {
+                analysis.put(PROXY + METRICS_SEPARATOR + entry.getKey(), String.valueOf(parseLong(entry.getValue())));
+            } else {
+                routes.put(entry.getKey().replace(':', '|'), parseLong(entry.getValue()));
+            }
+        }
+        analysis.put(ROUTES + METRICS_SEPARATOR + COUNT, String.valueOf(routes.size()));
+        for (String route : getBusiest(routes, maxRoutes)) {
+            analysis.put(ROUTES + METRICS_SEPARATOR + route, String.valueOf(routes.get(route)));
+        }
+        return analysis;
+    }
+
+    /**
+     * @return true for the proxy metrics which are gauges and are reported as is instead of as a delta
+     */
+    public static boolean isGauge(String metricPath) {
+        if (!metricPath.startsWith(PROXY + METRICS_SEPARATOR)) {
+            return false;
+        }
+        return metricPath.endsWith(METRICS_SEPARATOR + COUNT)
+                || metricPath.endsWith(METRICS_SEPARATOR + AVG_LATENCY_US)
+                || metricPath.endsWith(METRICS_SEPARATOR + PENDING_REQUESTS)
+                || metricPath.endsWith(METRICS_SEPARATOR + INFLIGHT_REQUESTS)
+                || metricPath.contains(METRICS_SEPARATOR + STATES + METRICS_SEPARATOR)
+                || metricPath.endsWith(ACTIVE_SUFFIX);
+    }
+
+    /**
+     * @param server eg. "10.0.0.1:11211:ascii:plain:notcompressed-1000" or "[::1]:11211:ascii:plain:notcompressed-1000"
+     * @return the host and port of the destination, usable in a metric path, eg. "10.0.0.1_11211"
+     */
+    static String getDestination(String server) {
+        boolean bracketed = server.startsWith("[");
+        int hostEnd = bracketed ? server.indexOf(']') + 1 : server.indexOf(':');
+        if (hostEnd <= 0 || hostEnd >= server.length()) {
+            return server.replace(':', '_');
+        }
+        String host = bracketed ? server.substring(1, hostEnd - 1) : server.substring(0, hostEnd);
+        int portEnd = server.indexOf(':', hostEnd + 1);
+        String port = server.substring(hostEnd + 1, portEnd > 0 ? portEnd : server.length());
+        return (host + "_" + port).replace(':', '_');
+    }
+
+    private static List<String> getBusiest(Map<String, Long> requests, int max) {
+        List<Map.Entry<String, Long>> ranked = new ArrayList<Map.Entry<String, Long>>(requests.entrySet());
+        Collections.sort(ranked, BUSIEST_FIRST);
+        List<String> busiest = new ArrayList<String>();
+        for (int i = 0; i < ranked.size() && i < max; i++) {
+            busiest.add(ranked.get(i).getKey());
+        }
+        return busiest;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Math.round(Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
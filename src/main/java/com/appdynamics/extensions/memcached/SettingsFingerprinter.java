@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps a compact fingerprint of the "stats settings" output of every server to detect configuration changes, eg. a
+ * restart with different -m, -c or -t flags, and configuration drift across the servers.
+ * Only a 64 bit hash of the whole settings and a hash per setting are stored, the latter to name the changed keys.
+ * The settings in {@link #IGNORED_SETTINGS} are not part of the fingerprint.
+ */
+public class SettingsFingerprinter {
+
+    public static final Logger logger = LoggerFactory.getLogger(SettingsFingerprinter.class);
+
+    /**
+     * The settings which identify a server or change at runtime rather than configure it: the ports and the listen
+     * interface differ across the servers of a cluster sharing a host, and "oldest" is the age of the oldest item, so
+     * hashing them would report every server as a distinct configuration and every run as a change.
+     */
+    static final Set<String> IGNORED_SETTINGS = ImmutableSet.of("tcpport", "udpport", "inter", "domain_socket", "oldest");
+
+    private final Map<String, Fingerprint> fingerprints = new HashMap<String, Fingerprint>();
+
+    /**
+     * Fingerprints the settings of a server and logs the changed keys if they differ from the previous fingerprint.
+     * @param server
+     * @param settings the raw "stats settings" output
+     * @return true if the settings changed since the previous update, false if unchanged or seen for the first time.
+     */
+    public synchronized boolean update(String server, Map<String, String> settings) {
+        Fingerprint current = new Fingerprint(settings);
+        Fingerprint previous = fingerprints.put(server, current);
+        if (previous == null || previous.hash == current.hash) {
+            return false;
+        }
+        List<String> changes = new ArrayList<String>();
+        for (Map.Entry<String, Integer> entry : current.keyHashes.entrySet()) {
+            Integer previousHash = previous.keyHashes.get(entry.getKey());
+            if (previousHash == null) {
+                changes.add("+" + entry.getKey() + "=" + settings.get(entry.getKey()));
+            } else if (!previousHash.equals(entry.getValue())) {
+                changes.add(entry.getKey() + "=" + settings.get(entry.getKey()));
+            }
+        }
+        for (String key : previous.keyHashes.keySet()) {
+            if (!current.keyHashes.containsKey(key)) {
+                changes.add("-" + key);
+            }
+        }
+        logger.warn("The settings of memcached server {} changed: {}", server, changes);
+        return true;
+    }
+
+    /**
+     * @return the number of distinct settings fingerprints across the servers.
+     */
+    public synchronized int getDistinctCount() {
+        Set<Long> distinct = new HashSet<Long>();
+        for (Fingerprint fingerprint : fingerprints.values()) {
+            distinct.add(fingerprint.hash);
+        }
+        return distinct.size();
+    }
+
+    /**
+     * Drops the fingerprints of the servers which are no longer monitored.
+     */
+    public synchronized void retain(Collection<String> servers) {
+        fingerprints.keySet().retainAll(servers);
+    }
+
+    private static class Fingerprint {
+        private final long hash;
+        private final Map<String, Integer> keyHashes = new HashMap<String, Integer>();
+
+        private Fingerprint(Map<String, String> settings) {
+            Hasher hasher = Hashing.murmur3_128().newHasher();
+            for (Map.Entry<String, String> entry : new TreeMap<String, String>(settings).entrySet()) {
+                if (IGNORED_SETTINGS.contains(entry.getKey())) {
+                    continue;
+                }
+                String value = entry.getValue() != null ? entry.getValue() : "";
+                hasher.putString(entry.getKey(), Charsets.UTF_8).putChar('=').putString(value, Charsets.UTF_8).putChar('\n');
+                keyHashes.put(entry.getKey(), value.hashCode());
+            }
+            this.hash = hasher.hash().asLong();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * Compares the eviction pressure of every slab class with the free chunks held by the other classes, using the
+ * "stats slabs" and "stats items" output of a server. Only the evicted counters of the previous sample are kept per
+ * server, the evictions since then being the pressure.
+ * <ul>
+ *     <li>Misallocation Score - the percentage of the slab pages which are free in classes that do not evict while
+ *     other classes evict, 0 when no class evicts</li>
+ *     <li>Recommended Page Moves - the number of pages to move from the classes with free pages to the evicting
+ *     classes, bounded by the free pages and the pages needed to hold the evicted items</li>
+ *     <li>Evicting Classes - the number of slab classes which evicted since the previous sample</li>
+ * </ul>
+ */
+public class SlabRebalanceAnalyzer {
+
+    public static final Logger logger = LoggerFactory.getLogger(SlabRebalanceAnalyzer.class);
+
+    public static final String SLAB_ANALYSIS = "Slab Analysis";
+    public static final String MISALLOCATION_SCORE = SLAB_ANALYSIS + METRICS_SEPARATOR + "Misallocation Score";
+    public static final String RECOMMENDED_PAGE_MOVES = SLAB_ANALYSIS + METRICS_SEPARATOR + "Recommended Page Moves";
+    public static final String EVICTING_CLASSES = SLAB_ANALYSIS + METRICS_SEPARATOR + "Evicting Classes";
+
+    private static final String ITEMS_PREFIX = "items:";
+
+    private final Map<String, Map<Integer, Long>> previousEvictions = new HashMap<String, Map<Integer, Long>>();
+
+    /**
+     * @param server
+     * @param slabs the raw "stats slabs" output, eg. "1:total_pages"
+     * @param items the raw "stats items" output, eg. "items:1:evicted"
+     * @return the analysis metrics keyed by their path
+     */
+    public synchronized Map<String, String> analyze(String server, Map<String, String> slabs, Map<String, String> items) {
+        Map<Integer, SlabClass> classes = new TreeMap<Integer, SlabClass>();
+        for (Map.Entry<String, String> entry : slabs.entrySet()) {
+            String key = entry.getKey();
+            int colon = key.indexOf(':');
+            if (colon > 0) {
+                getSlabClass(classes, key.substring(0, colon)).set(key.substring(colon + 1), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : items.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(ITEMS_PREFIX)) {
+                key = key.substring(ITEMS_PREFIX.length());
+            }
+            int colon = key.indexOf(':');
+            if (colon > 0 && key.endsWith(":evicted")) {
+                getSlabClass(classes, key.substring(0, colon)).evicted = parseLong(entry.getValue());
+            }
+        }
+
+        Map<Integer, Long> previous = previousEvictions.get(server);
+        Map<Integer, Long> current = new HashMap<Integer, Long>();
+        long totalPages = 0;
+        long freePages = 0;
+        long neededPages = 0;
+        List<Integer> evicting = new ArrayList<Integer>();
+        List<Integer> donors = new ArrayList<Integer>();
+        for (Map.Entry<Integer, SlabClass> entry : classes.entrySet()) {
+            SlabClass slabClass = entry.getValue();
+            current.put(entry.getKey(), slabClass.evicted);
+            totalPages += slabClass.totalPages;
+            if (slabClass.chunksPerPage <= 0) {
+                continue;
+            }
+            Long previousEvicted = previous != null ? previous.get(entry.getKey()) : null;
+            long evicted = previousEvicted != null ? Math.max(slabClass.evicted - previousEvicted, 0) : 0;
+            if (evicted > 0) {
+                evicting.add(entry.getKey());
+                neededPages += (evicted + slabClass.chunksPerPage - 1) / slabClass.chunksPerPage;
+            } else {
+                long classFreePages = slabClass.freeChunks / slabClass.chunksPerPage;
+                if (classFreePages > 0) {
+                    donors.add(entry.getKey());
+                    freePages += classFreePages;
+                }
+            }
+        }
+        previousEvictions.put(server, current);
+
+        long score = 0;
+        long moves = 0;
+        if (!evicting.isEmpty() && totalPages > 0) {
+            score = Math.round(100.0 * freePages / totalPages);
+            moves = Math.min(freePages, neededPages);
+        }
+        if (moves > 0) {
+            logger.info("Memcached server {} evicts in slab classes {} while classes {} hold {} free pages, recommending to move {} pages",
+                    server, evicting, donors, freePages, moves);
+        }
+        Map<String, String> analysis = new HashMap<String, String>();
+        analysis.put(MISALLOCATION_SCORE, String.valueOf(score));
+        analysis.put(RECOMMENDED_PAGE_MOVES, String.valueOf(moves));
+        analysis.put(EVICTING_CLASSES, String.valueOf(evicting.size()));
+        return analysis;
+    }
+
+    /**
+     * Drops the previous samples of the servers which are no longer monitored.
+     */
+    public synchronized void retain(Collection<String> servers) {
+        previousEvictions.keySet().retainAll(servers);
+    }
+
+    private static SlabClass getSlabClass(Map<Integer, SlabClass> classes, String id) {
+        Integer classId;
+        try {
+            classId = Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            //not a per class stat
+            return new SlabClass();
+        }
+        SlabClass slabClass = classes.get(classId);
+        if (slabClass == null) {
+            slabClass = new SlabClass();
+            classes.put(classId, slabClass);
+        }
+        return slabClass;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static class SlabClass {
+        private long totalPages;
+        private long chunksPerPage;
+        private long freeChunks;
+        private long evicted;
+
+        private void set(String field, String value) {
+            if ("total_pages".equals(field)) {
+                totalPages = parseLong(value);
+            } else if ("chunks_per_page".equals(field)) {
+                chunksPerPage = parseLong(value);
+            } else if ("free_chunks".equals(field) || "free_chunks_end".equals(field)) {
+                freeChunks += parseLong(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.base.Charsets;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fetches stats over a socket using the memcached text protocol, from servers listening on TCP or on a unix domain
+ * socket. The connection is reused for all the stats of a run.
+ * <p>
+ * The response is read line by line into a reusable buffer and the {@link StatsFilter} is applied to the stat path
+ * before the key and value strings are created, so the rejected stats do not cost any allocation. The stats can also
+ * be handed to a {@link StatsHandler} straight from the reusable buffers, without creating any string.
+ */
+public class SocketStatsClient implements StatsClient {
+
+    private static final String STAT = "STAT ";
+    private static final String END = "END";
+
+    private final InetSocketAddress address;
+    private final int timeout;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private final StringBuilder line = new StringBuilder(128);
+    private final StringBuilder path = new StringBuilder(128);
+    private final StringBuilder key = new StringBuilder(64);
+    private final StringBuilder value = new StringBuilder(128);
+
+    public SocketStatsClient(Socket socket, int timeout) throws IOException {
+        this.address = null;
+        this.timeout = timeout;
+        open(socket);
+    }
+
+    /**
+     * Creates a client for a TCP server, connecting on the first request so that no connection is made on the runs
+     * which do not fetch any stats.
+     * @param address
+     * @param timeout in ms
+     */
+    public SocketStatsClient(InetSocketAddress address, int timeout) {
+        this.address = address;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Connects to a memcached server listening on a unix domain socket (memcached -s).
+     * @param socketPath
+     * @param timeout in ms
+     * @return SocketStatsClient
+     * @throws IOException
+     */
+    public static SocketStatsClient connectUnixSocket(String socketPath, int timeout) throws IOException {
+        AFUNIXSocket socket = AFUNIXSocket.newInstance();
+        try {
+            socket.connect(new AFUNIXSocketAddress(new File(socketPath)), timeout);
+            return new SocketStatsClient(socket, timeout);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    public Map<String, String> getStats(final String group, StatsFilter filter) throws IOException {
+        final StatsFilter.Selector selector = filter != null && !filter.isAcceptAll() ? filter.newSelector() : null;
+        final Map<String, String> stats = new HashMap<String, String>();
+        readStats(group, new StatsHandler() {
+            public void stat(CharSequence key, CharSequence value) {
+                if (accepts(selector, group, key)) {
+                    stats.put(key.toString(), value.toString());
+                }
+            }
+        });
+        return stats;
+    }
+
+    public void readStats(String group, StatsHandler handler) throws IOException {
+        if (socket == null) {
+            Socket tcpSocket = new Socket();
+            try {
+                tcpSocket.connect(address, timeout);
+                open(tcpSocket);
+            } catch (IOException e) {
+                tcpSocket.close();
+                throw e;
+            }
+        }
+        String command = group == null ? "stats\r\n" : "stats " + group + "\r\n";
+        out.write(command.getBytes(Charsets.US_ASCII));
+        out.flush();
+        while (readLine()) {
+            if (startsWith(STAT)) {
+                int separator = line.indexOf(" ", STAT.length());
+                if (separator > 0) {
+                    key.setLength(0);
+                    key.append(line, STAT.length(), separator);
+                    value.setLength(0);
+                    value.append(line, separator + 1, line.length());
+                    handler.stat(key, value);
+                }
+            } else if (line.length() == END.length() && startsWith(END)) {
+                return;
+            } else if (startsWith("ERROR") || startsWith("CLIENT_ERROR") || startsWith("SERVER_ERROR")) {
+                throw new IOException("The server responded with " + line + " to " + command.trim());
+            }
+        }
+        throw new IOException("The connection was closed while reading the response to " + command.trim());
+    }
+
+    public void close() {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //ignore
+        }
+    }
+
+    private void open(Socket socket) throws IOException {
+        socket.setSoTimeout(timeout);
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = socket.getOutputStream();
+        this.socket = socket;
+    }
+
+    /**
+     * Matches the path of a stat, built in a reusable buffer with the same ':' to '|' mapping as
+     * {@link StatsFilter#getStatPath}. The general stats required internally are always accepted.
+     */
+    private boolean accepts(StatsFilter.Selector selector, String group, CharSequence key) {
+        if (selector == null) {
+            return true;
+        }
+        path.setLength(0);
+        if (group != null) {
+            path.append(group).append('|');
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            path.append(c == ':' ? '|' : c);
+        }
+        if (selector.accepts(path)) {
+            return true;
+        }
+        return group == null && StatsFilter.isRequiredGeneralStat(path);
+    }
+
+    /**
+     * Reads the next line of the response into the line buffer, without the line terminator.
+     * @return false if the connection was closed
+     */
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return true;
+            }
+            line.append((char) b);
+        }
+        return false;
+    }
+
+    private boolean startsWith(String prefix) {
+        if (line.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
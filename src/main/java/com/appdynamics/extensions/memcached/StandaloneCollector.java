@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.memcached.config.Cluster;
+import com.appdynamics.extensions.memcached.config.Configuration;
+import com.appdynamics.extensions.memcached.config.Server;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the memcached collection outside of the machine agent, on its own schedule, and serves the latest snapshot of
+ * the metrics on a local HTTP endpoint in the Prometheus exposition format.
+ * <pre>
+ * java -cp memcached-monitoring-extension.jar com.appdynamics.extensions.memcached.StandaloneCollector config.yaml
+ * </pre>
+ */
+public class StandaloneCollector {
+
+    public static final Logger logger = LoggerFactory.getLogger(StandaloneCollector.class);
+    public static final String METRICS_PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MemcachedCollector collector = new MemcachedCollector();
+    private final PrometheusSnapshot snapshot = new PrometheusSnapshot();
+    private ScheduledExecutorService scheduler;
+    private HttpServer httpServer;
+
+    public StandaloneCollector(Configuration config) {
+        //every snapshot replaces the previous one, so the metrics suppressed by the change only emission would vanish
+        if (config.isChangeOnlyEmission()) {
+            logger.info("changeOnlyEmission is ignored by the standalone collector");
+            config.setChangeOnlyEmission(false);
+        }
+        collector.setConfig(config);
+        Map<String, String> clusterPrefixes = new HashMap<String, String>();
+        List<String> displayNames = new ArrayList<String>();
+        for (Cluster cluster : config.getResolvedClusters()) {
+            clusterPrefixes.put(cluster.getMetricPrefix(), cluster.getName());
+            if (cluster.getServers() == null) {
+                continue;
+            }
+            for (Server server : cluster.getServers()) {
+                displayNames.add(server.getDisplayName());
+            }
+        }
+        snapshot.setMetricPaths(clusterPrefixes, displayNames);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: StandaloneCollector <config-file>");
+            System.exit(1);
+        }
+        Configuration config = MemcachedCollector.readConfig(new File(args[0]));
+        new StandaloneCollector(config).start();
+    }
+
+    public void start() throws IOException {
+        Configuration config = collector.getConfig();
+        httpServer = HttpServer.create(new InetSocketAddress(config.getStandaloneHost(), config.getStandalonePort()), 0);
+        httpServer.createContext(METRICS_PATH, new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                OutputStream body = exchange.getResponseBody();
+                try {
+                    snapshot.writeTo(body, new PrometheusSnapshot.SnapshotWriter() {
+                        public void begin(int size) throws IOException {
+                            //-1 sends an empty body, 0 would mean a chunked response
+                            exchange.sendResponseHeaders(200, size > 0 ? size : -1);
+                        }
+                    });
+                } finally {
+                    body.close();
+                }
+            }
+        });
+        httpServer.start();
+        logger.info("Serving the memcached metrics on http://{}:{}{}", config.getStandaloneHost(), config.getStandalonePort(), METRICS_PATH);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                runCycle();
+            }
+        }, 0, config.getStandaloneIntervalInSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs a collection cycle and publishes its metrics as the new snapshot.
+     */
+    public void runCycle() {
+        try {
+            collector.collect(snapshot);
+        } catch (Exception e) {
+            logger.error("Metrics collection failed", e);
+        }
+        snapshot.publish();
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+    }
+}
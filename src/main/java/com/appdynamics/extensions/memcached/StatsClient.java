@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import java.util.Map;
+
+/**
+ * Fetches the stats of a single memcached server.
+ */
+public interface StatsClient {
+
+    /**
+     * @param group the stats group, eg. "slabs", or null for the general stats
+     * @param filter the stats to read, or null to read all the stats
+     * @return the stats keyed by their name
+     * @throws Exception
+     */
+    Map<String, String> getStats(String group, StatsFilter filter) throws Exception;
+
+    /**
+     * Reads all the stats of a group without collecting them.
+     * @param group the stats group, eg. "conns"
+     * @param handler called for every stat of the response
+     * @throws Exception
+     */
+    void readStats(String group, StatsHandler handler) throws Exception;
+}
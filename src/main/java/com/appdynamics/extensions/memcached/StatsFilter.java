@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * The "statsInclude" and "statsExclude" lists of the config, compiled once when the config is loaded, see
+ * {@link com.appdynamics.extensions.memcached.config.Configuration#getStatsFilter()}. The patterns are
+ * matched against the path of a stat relative to the server, eg. "curr_items" for the general stats or
+ * "slabs|1|chunk_size" for the stats groups. A stat is accepted if it matches an include pattern, or if there are no
+ * include patterns, and it does not match an exclude pattern.
+ * <p>
+ * The filter is applied by {@link SocketStatsClient} while the response is read, so the rejected stats are skipped
+ * before any object is created for them.
+ */
+public class StatsFilter {
+
+    public static final StatsFilter ACCEPT_ALL = new StatsFilter(null, null);
+
+    /* The general stats used to detect restarts and by the extstore analysis are read even if they are not reported. */
+    private static final Set<String> REQUIRED_GENERAL_STATS = ImmutableSet.of(
+            Metrics.UPTIME, "pid", Metrics.GET_HITS, Metrics.BYTES, Metrics.GET_EXTSTORE);
+    private static final String REQUIRED_GENERAL_STATS_PREFIX = "extstore_";
+
+    private final Pattern include;
+    private final Pattern exclude;
+
+    /**
+     * @param include
+     * @param exclude
+     * @throws IllegalArgumentException if a pattern is not a valid regular expression
+     */
+    public StatsFilter(List<String> include, List<String> exclude) {
+        this.include = compile("statsInclude", include);
+        this.exclude = compile("statsExclude", exclude);
+    }
+
+    public boolean isAcceptAll() {
+        return include == null && exclude == null;
+    }
+
+    /**
+     * @return a selector reusing its matchers for all the stats of a response, which must not be shared across threads
+     */
+    public Selector newSelector() {
+        return new Selector();
+    }
+
+    /**
+     * Removes the general stats which are not accepted, once the stats required internally have been used.
+     * @param generalStats
+     */
+    public void retain(Map<String, String> generalStats) {
+        if (isAcceptAll() || generalStats == null) {
+            return;
+        }
+        Selector selector = newSelector();
+        Iterator<String> it = generalStats.keySet().iterator();
+        while (it.hasNext()) {
+            if (!selector.accepts(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Matches the content of the stat name without creating a string, so that it can be called on a reusable buffer.
+     * @return true for the general stats which are read even if they are not accepted
+     */
+    public static boolean isRequiredGeneralStat(CharSequence stat) {
+        if (startsWith(stat, REQUIRED_GENERAL_STATS_PREFIX)) {
+            return true;
+        }
+        for (String required : REQUIRED_GENERAL_STATS) {
+            if (required.contentEquals(stat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(CharSequence value, String prefix) {
+        if (value.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (value.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the path of a stat as matched by the filter, eg. "slabs|1|chunk_size" for "1:chunk_size" of "slabs"
+     */
+    public static String getStatPath(String group, String key) {
+        String path = key.replace(':', '|');
+        return group != null ? group + METRICS_SEPARATOR + path : path;
+    }
+
+    private static Pattern compile(String name, List<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        for (String pattern : patterns) {
+            try {
+                Pattern.compile(pattern);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid " + name + " pattern " + pattern + ": " + e.getDescription(), e);
+            }
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            regex.append("(?:").append(pattern).append(')');
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public class Selector {
+        private final Matcher includeMatcher = include != null ? include.matcher("") : null;
+        private final Matcher excludeMatcher = exclude != null ? exclude.matcher("") : null;
+
+        private Selector() {
+        }
+
+        public boolean accepts(CharSequence statPath) {
+            if (includeMatcher != null && !includeMatcher.reset(statPath).matches()) {
+                return false;
+            }
+            return excludeMatcher == null || !excludeMatcher.reset(statPath).matches();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+/**
+ * Receives the stats of a "stats &lt;group&gt;" response one by one, in the order of the response, so that large groups
+ * can be folded into aggregates while they are read.
+ */
+public interface StatsHandler {
+
+    /**
+     * @param key the name of the stat, eg. "25:addr"
+     * @param value the value of the stat
+     * The key and the value are reusable buffers which are only valid during the call.
+     */
+    void stat(CharSequence key, CharSequence value);
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.util.metrics.Metric;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigns each stats group to a polling tier and caches the processed metrics of a group between refreshes.
+ * <ul>
+ *     <li>HOT - fetched on every run (the general "stats" counters)</li>
+ *     <li>DETAIL - fetched every <code>detailStatsInterval</code> runs ("slabs", "items", "conns", "extstore")</li>
+ *     <li>STATIC - fetched every <code>staticStatsIntervalInMins</code> minutes ("settings" and the static values of the
+ *     general stats such as version, threads and limit_maxbytes)</li>
+ * </ul>
+ * All the cached tiers of a server are refreshed when a restart of the server is detected.
+ */
+public class StatsScheduler {
+
+    public static final Logger logger = LoggerFactory.getLogger(StatsScheduler.class);
+
+    public enum Tier { HOT, DETAIL, STATIC }
+
+    /* The static values of the general stats output are cached under this group name. */
+    public static final String GENERAL_STATIC = "general_static";
+
+    /* The slab analysis is computed from the "slabs" and "items" groups, so it is refreshed with them. */
+    public static final String SLAB_ANALYSIS = "slab_analysis";
+
+    /* The connection analysis is computed from the "conns" group, so it is refreshed with it. */
+    public static final String CONNECTION_ANALYSIS = "connection_analysis";
+
+    /* The extstore analysis is mostly computed from the general stats, so it is computed on every run. */
+    public static final String EXTSTORE_ANALYSIS = "extstore_analysis";
+
+    public static final Set<String> STATIC_GENERAL_STATS = ImmutableSet.of(
+            "pid", "version", "libevent", "pointer_size", "threads", "limit_maxbytes");
+
+    private static final Map<String, Tier> TIERS = ImmutableMap.<String, Tier>builder()
+            .put(GENERAL_STATIC, Tier.STATIC)
+            .put("slabs", Tier.DETAIL)
+            .put("items", Tier.DETAIL)
+            .put("conns", Tier.DETAIL)
+            .put("extstore", Tier.DETAIL)
+            .put(SLAB_ANALYSIS, Tier.DETAIL)
+            .put(CONNECTION_ANALYSIS, Tier.DETAIL)
+            .put("settings", Tier.STATIC)
+            .build();
+
+    private static final String PID = "pid";
+    private static final String UPTIME = "uptime";
+
+    private final Map<String, ServerState> serverStates = new HashMap<String, ServerState>();
+    private long runCount;
+
+    /**
+     * Marks the start of a new collection run.
+     */
+    public synchronized void nextRun() {
+        runCount++;
+    }
+
+    public static Tier getTier(String group) {
+        Tier tier = TIERS.get(group);
+        return tier != null ? tier : Tier.HOT;
+    }
+
+    /**
+     * Inspects the general stats of a server and drops its cached tiers if the server was restarted since the
+     * previous run, i.e. its pid changed or its uptime went backwards.
+     * @return true if a restart was detected
+     */
+    public synchronized boolean checkRestart(String server, Map<String, String> generalStats) {
+        ServerState state = getState(server);
+        String pid = generalStats.get(PID);
+        long uptime = parseLong(generalStats.get(UPTIME));
+        boolean restarted = (state.pid != null && pid != null && !state.pid.equals(pid))
+                || (state.uptime >= 0 && uptime >= 0 && uptime < state.uptime);
+        if (restarted) {
+            logger.info("Detected a restart of memcached server {}, refreshing all the stats tiers", server);
+            state.cachedMetrics.clear();
+        }
+        state.pid = pid;
+        state.uptime = uptime;
+        return restarted;
+    }
+
+    /**
+     * @return true if the group has to be fetched from the server on this run.
+     */
+    public synchronized boolean isDue(String server, String group, int detailStatsInterval, int staticStatsIntervalInMins) {
+        ServerState state = getState(server);
+        CachedMetrics cached = state.cachedMetrics.get(group);
+        if (cached == null) {
+            return true;
+        }
+        switch (getTier(group)) {
+            case DETAIL:
+                return runCount - cached.run >= Math.max(detailStatsInterval, 1);
+            case STATIC:
+                return System.currentTimeMillis() - cached.time >= TimeUnit.MINUTES.toMillis(staticStatsIntervalInMins);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return the number of runs since the previous refresh of the group, 1 if it was never refreshed
+     */
+    public synchronized long getRunsSinceRefresh(String server, String group) {
+        CachedMetrics cached = getState(server).cachedMetrics.get(group);
+        return cached != null ? Math.max(runCount - cached.run, 1) : 1;
+    }
+
+    public synchronized void update(String server, String group, List<Metric> metrics) {
+        if (getTier(group) != Tier.HOT) {
+            getState(server).cachedMetrics.put(group, new CachedMetrics(metrics, runCount, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * @return the metrics of the group from its last refresh, or null if the group was never fetched.
+     */
+    public synchronized List<Metric> getCached(String server, String group) {
+        CachedMetrics cached = getState(server).cachedMetrics.get(group);
+        return cached != null ? cached.metrics : null;
+    }
+
+    /**
+     * Drops the state of the servers which are no longer monitored.
+     */
+    public synchronized void retain(Collection<String> servers) {
+        serverStates.keySet().retainAll(servers);
+    }
+
+    private ServerState getState(String server) {
+        ServerState state = serverStates.get(server);
+        if (state == null) {
+            state = new ServerState();
+            serverStates.put(server, state);
+        }
+        return state;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static class ServerState {
+        private String pid;
+        private long uptime = -1;
+        private final Map<String, CachedMetrics> cachedMetrics = new HashMap<String, CachedMetrics>();
+    }
+
+    private static class CachedMetrics {
+        private final List<Metric> metrics;
+        private final long run;
+        private final long time;
+
+        private CachedMetrics(List<Metric> metrics, long run, long time) {
+            this.metrics = metrics;
+            this.run = run;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached.config;
+
+import com.appdynamics.extensions.util.metrics.MetricOverride;
+
+import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
+
+/**
+ * A named group of servers which is collected in isolation from the other clusters, with its own metric prefix,
+ * timeout, metric overrides and number of concurrent requests.
+ */
+public class Cluster {
+
+    private String name;
+    private String metricPrefix;
+    private Server[] servers;
+    private MetricOverride[] metricOverrides;
+    private long timeout;
+    private int maxConcurrency;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getMetricPrefix() {
+        return metricPrefix;
+    }
+
+    public void setMetricPrefix(String metricPrefix) {
+        if(metricPrefix != null && !metricPrefix.endsWith(METRICS_SEPARATOR)){
+            metricPrefix = metricPrefix + METRICS_SEPARATOR;
+        }
+        this.metricPrefix = metricPrefix;
+    }
+
+    public Server[] getServers() {
+        return servers;
+    }
+
+    public void setServers(Server[] servers) {
+        this.servers = servers;
+    }
+
+    public MetricOverride[] getMetricOverrides() {
+        return metricOverrides;
+    }
+
+    public void setMetricOverrides(MetricOverride[] metricOverrides) {
+        this.metricOverrides = metricOverrides;
+    }
+
+    /**
+     * @return the timeout in ms to collect a server of the cluster, 0 if not configured
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * The deadline to collect all the servers of the cluster: the servers are collected {@link #getMaxConcurrency()} at a
+     * time, each within the timeout.
+     * @return the deadline in ms
+     */
+    public long getDeadline() {
+        int batches = 1;
+        if(servers != null && servers.length > 0){
+            int concurrency = Math.max(maxConcurrency, 1);
+            batches = (servers.length + concurrency - 1) / concurrency;
+        }
+        return timeout * batches;
+    }
+
+    /**
+     * @return the number of servers of the cluster which are collected concurrently, 0 if not configured
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+}
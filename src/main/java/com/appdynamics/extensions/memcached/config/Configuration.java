@@ -7,9 +7,12 @@
 
 package com.appdynamics.extensions.memcached.config;
 
+import com.appdynamics.extensions.memcached.StatsFilter;
 import com.appdynamics.extensions.util.metrics.MetricOverride;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import java.util.List;
 import java.util.Set;
 
 import static com.appdynamics.extensions.util.metrics.MetricConstants.METRICS_SEPARATOR;
@@ -21,10 +24,30 @@ public class Configuration {
 
     String metricPrefix;
     Server[] servers;
+    Cluster[] clusters;
     MetricOverride[] metricOverrides;
     String encryptionKey;
     long timeout = 60000;
+    int maxConcurrency = 2;
     Set<String> ignoreDelta;
+    List<String> statsGroups;
+    List<String> statsInclude;
+    List<String> statsExclude;
+    int detailStatsInterval = 5;
+    int staticStatsIntervalInMins = 60;
+    boolean detectConfigurationChanges;
+    boolean changeOnlyEmission;
+    boolean slabAnalysis;
+    boolean connectionAnalysis;
+    int connectionAnalysisTopK = 10;
+    int connectionAnalysisSubnetBits = 32;
+    int proxyMaxDestinations = 20;
+    int proxyMaxRoutes = 20;
+    int heartbeatIntervalInMins = 10;
+    String standaloneHost = "localhost";
+    int standalonePort = 9150;
+    int standaloneIntervalInSeconds = 60;
+    private StatsFilter statsFilter;
 
     public Server[] getServers() {
         return servers;
@@ -34,6 +57,46 @@ public class Configuration {
         this.servers = servers;
     }
 
+    public Cluster[] getClusters() {
+        return clusters;
+    }
+
+    public void setClusters(Cluster[] clusters) {
+        this.clusters = clusters;
+    }
+
+    /**
+     * Returns the clusters to collect. The top level "servers" form an unnamed cluster using the top level metric prefix,
+     * timeout, max concurrency and overrides, which are also the defaults of the named clusters. The clusters are resolved
+     * into new objects, so the configured ones are left as they were read.
+     * @return List
+     */
+    public List<Cluster> getResolvedClusters() {
+        List<Cluster> resolved = Lists.newArrayList();
+        if(servers != null && servers.length > 0){
+            Cluster cluster = new Cluster();
+            cluster.setMetricPrefix(metricPrefix);
+            cluster.setServers(servers);
+            cluster.setMetricOverrides(metricOverrides);
+            cluster.setTimeout(timeout);
+            cluster.setMaxConcurrency(maxConcurrency);
+            resolved.add(cluster);
+        }
+        if(clusters != null){
+            for(Cluster configured : clusters){
+                Cluster cluster = new Cluster();
+                cluster.setName(configured.getName());
+                cluster.setMetricPrefix(configured.getMetricPrefix() != null ? configured.getMetricPrefix() : metricPrefix + configured.getName());
+                cluster.setServers(configured.getServers());
+                cluster.setMetricOverrides(configured.getMetricOverrides() != null ? configured.getMetricOverrides() : metricOverrides);
+                cluster.setTimeout(configured.getTimeout() > 0 ? configured.getTimeout() : timeout);
+                cluster.setMaxConcurrency(configured.getMaxConcurrency() > 0 ? configured.getMaxConcurrency() : maxConcurrency);
+                resolved.add(cluster);
+            }
+        }
+        return resolved;
+    }
+
     public String getMetricPrefix() {
         return metricPrefix;
     }
@@ -70,6 +133,14 @@ public class Configuration {
         this.timeout = timeout;
     }
 
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
     public Set<String> getIgnoreDelta() {
         if(ignoreDelta == null){
             ignoreDelta = Sets.newHashSet();
@@ -80,4 +151,156 @@ public class Configuration {
     public void setIgnoreDelta(Set<String> ignoreDelta) {
         this.ignoreDelta = ignoreDelta;
     }
+
+    public List<String> getStatsGroups() {
+        if(statsGroups == null){
+            statsGroups = Lists.newArrayList();
+        }
+        return statsGroups;
+    }
+
+    public void setStatsGroups(List<String> statsGroups) {
+        this.statsGroups = statsGroups;
+    }
+
+    public List<String> getStatsInclude() {
+        return statsInclude;
+    }
+
+    public synchronized void setStatsInclude(List<String> statsInclude) {
+        this.statsInclude = statsInclude;
+        this.statsFilter = null;
+    }
+
+    public List<String> getStatsExclude() {
+        return statsExclude;
+    }
+
+    public synchronized void setStatsExclude(List<String> statsExclude) {
+        this.statsExclude = statsExclude;
+        this.statsFilter = null;
+    }
+
+    /**
+     * @return the filter compiled from "statsInclude" and "statsExclude", shared by all the clusters
+     * @throws IllegalArgumentException if a pattern is not a valid regular expression
+     */
+    public synchronized StatsFilter getStatsFilter() {
+        if(statsFilter == null){
+            statsFilter = new StatsFilter(statsInclude, statsExclude);
+        }
+        return statsFilter;
+    }
+
+    public int getDetailStatsInterval() {
+        return detailStatsInterval;
+    }
+
+    public void setDetailStatsInterval(int detailStatsInterval) {
+        this.detailStatsInterval = detailStatsInterval;
+    }
+
+    public int getStaticStatsIntervalInMins() {
+        return staticStatsIntervalInMins;
+    }
+
+    public void setStaticStatsIntervalInMins(int staticStatsIntervalInMins) {
+        this.staticStatsIntervalInMins = staticStatsIntervalInMins;
+    }
+
+    public boolean isDetectConfigurationChanges() {
+        return detectConfigurationChanges;
+    }
+
+    public void setDetectConfigurationChanges(boolean detectConfigurationChanges) {
+        this.detectConfigurationChanges = detectConfigurationChanges;
+    }
+
+    public boolean isChangeOnlyEmission() {
+        return changeOnlyEmission;
+    }
+
+    public void setChangeOnlyEmission(boolean changeOnlyEmission) {
+        this.changeOnlyEmission = changeOnlyEmission;
+    }
+
+    public int getHeartbeatIntervalInMins() {
+        return heartbeatIntervalInMins;
+    }
+
+    public void setHeartbeatIntervalInMins(int heartbeatIntervalInMins) {
+        this.heartbeatIntervalInMins = heartbeatIntervalInMins;
+    }
+
+    public String getStandaloneHost() {
+        return standaloneHost;
+    }
+
+    public void setStandaloneHost(String standaloneHost) {
+        this.standaloneHost = standaloneHost;
+    }
+
+    public int getStandalonePort() {
+        return standalonePort;
+    }
+
+    public void setStandalonePort(int standalonePort) {
+        this.standalonePort = standalonePort;
+    }
+
+    public int getStandaloneIntervalInSeconds() {
+        return standaloneIntervalInSeconds;
+    }
+
+    public void setStandaloneIntervalInSeconds(int standaloneIntervalInSeconds) {
+        this.standaloneIntervalInSeconds = standaloneIntervalInSeconds;
+    }
+
+    public boolean isSlabAnalysis() {
+        return slabAnalysis;
+    }
+
+    public void setSlabAnalysis(boolean slabAnalysis) {
+        this.slabAnalysis = slabAnalysis;
+    }
+
+    public boolean isConnectionAnalysis() {
+        return connectionAnalysis;
+    }
+
+    public void setConnectionAnalysis(boolean connectionAnalysis) {
+        this.connectionAnalysis = connectionAnalysis;
+    }
+
+    public int getConnectionAnalysisTopK() {
+        return connectionAnalysisTopK;
+    }
+
+    public void setConnectionAnalysisTopK(int connectionAnalysisTopK) {
+        this.connectionAnalysisTopK = connectionAnalysisTopK;
+    }
+
+    public int getConnectionAnalysisSubnetBits() {
+        return connectionAnalysisSubnetBits;
+    }
+
+    public void setConnectionAnalysisSubnetBits(int connectionAnalysisSubnetBits) {
+        this.connectionAnalysisSubnetBits = connectionAnalysisSubnetBits;
+    }
+
+    public int getProxyMaxDestinations() {
+        return proxyMaxDestinations;
+    }
+
+    public void setProxyMaxDestinations(int proxyMaxDestinations) {
+        this.proxyMaxDestinations = proxyMaxDestinations;
+    }
+
+    public int getProxyMaxRoutes() {
+        return proxyMaxRoutes;
+    }
+
+    public void setProxyMaxRoutes(int proxyMaxRoutes) {
+        this.proxyMaxRoutes = proxyMaxRoutes;
+    }
 }
@@ -7,11 +7,21 @@
 
 package com.appdynamics.extensions.memcached.config;
 
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
 
 public class Server {
 
+    public static final String UNIX_SOCKET_PREFIX = "unix:";
+    public static final String TYPE_MEMCACHED = "memcached";
+    public static final String TYPE_MCROUTER = "mcrouter";
+    public static final String TYPE_PROXY = "proxy";
+    public static final Set<String> TYPES = ImmutableSet.of(TYPE_MEMCACHED, TYPE_MCROUTER, TYPE_PROXY);
+
     private String displayName;
     private String server;
+    private String type = TYPE_MEMCACHED;
     private String encryptedPassword;
     private String username;
     private String password;
@@ -32,6 +42,14 @@ public class Server {
         this.displayName = displayName;
     }
 
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
     public String getEncryptedPassword() {
         return encryptedPassword;
     }
@@ -55,5 +73,26 @@ public class Server {
     public void setPassword(String password) {
         this.password = password;
     }
-}
 
+    /**
+     * @return true if the server is a "unix:/path/to/socket" entry
+     */
+    public boolean isUnixSocket() {
+        return server != null && server.startsWith(UNIX_SOCKET_PREFIX);
+    }
+
+    public String getSocketPath() {
+        return server.substring(UNIX_SOCKET_PREFIX.length());
+    }
+
+    /**
+     * @return true if the server is a routing proxy, i.e. mcrouter or the memcached built-in proxy
+     */
+    public boolean isProxy() {
+        return TYPE_MCROUTER.equals(type) || TYPE_PROXY.equals(type);
+    }
+
+    public boolean isMcrouter() {
+        return TYPE_MCROUTER.equals(type);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.Maps;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs full collection cycles of {@link MemcachedMonitor#execute} against a fleet of {@link StubMemcachedServer}s and
+ * fails when the bytes allocated per cycle exceed the budget checked in as allocation-budget.properties.
+ * <p>
+ * The allocations are measured with the allocation counters of the threads, excluding the threads of the stub servers.
+ * The counters are sampled every millisecond during a cycle, so that the threads which end within the cycle are counted
+ * up to their last sample. The fleet size defaults to 10 servers and can be set with -Dallocation.fleetSize.
+ */
+public class AllocationBudgetTest {
+
+    private static final String FLEET_SIZE = "allocation.fleetSize";
+    private static final int WARMUP_CYCLES = 5;
+    private static final int MEASURED_CYCLES = 10;
+
+    @Test
+    public void testCollectionCycleStaysWithinTheAllocationBudget() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        Assume.assumeTrue(threadBean != null);
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Properties budget = new Properties();
+        InputStream budgetStream = getClass().getResourceAsStream("/allocation-budget.properties");
+        try {
+            budget.load(budgetStream);
+        } finally {
+            budgetStream.close();
+        }
+        long cycleOverheadBudget = Long.parseLong(budget.getProperty("cycle.overhead.bytes"));
+        long serverBudget = Long.parseLong(budget.getProperty("server.bytes"));
+
+        int fleetSize = Integer.getInteger(FLEET_SIZE, 10);
+        List<StubMemcachedServer> fleet = new ArrayList<StubMemcachedServer>();
+        File configFile = File.createTempFile("memcached-allocation", ".yaml");
+        try {
+            for (int i = 0; i < fleetSize; i++) {
+                fleet.add(new StubMemcachedServer());
+            }
+            writeConfig(configFile, fleet);
+            Map<String, String> taskArgs = Maps.newHashMap();
+            taskArgs.put(MemcachedMonitor.CONFIG_ARG, configFile.getAbsolutePath());
+            MemcachedMonitor monitor = new MemcachedMonitor();
+
+            for (int i = 0; i < WARMUP_CYCLES; i++) {
+                monitor.execute(taskArgs, null);
+            }
+            long allocated = 0;
+            for (int i = 0; i < MEASURED_CYCLES; i++) {
+                AllocationSampler sampler = new AllocationSampler(threadBean);
+                Thread samplerThread = new Thread(sampler, "allocation-sampler");
+                samplerThread.setDaemon(true);
+                samplerThread.start();
+                try {
+                    monitor.execute(taskArgs, null);
+                } finally {
+                    sampler.stop();
+                    samplerThread.join();
+                }
+                allocated += sampler.getAllocatedBytes();
+            }
+
+            long perCycle = allocated / MEASURED_CYCLES;
+            long perServer = perCycle / fleetSize;
+            long cycleBudget = cycleOverheadBudget + fleetSize * serverBudget;
+            assertTrue("Allocated " + perCycle + " bytes per cycle and " + perServer + " bytes per server for "
+                    + fleetSize + " servers, over the budget of " + cycleBudget + " bytes per cycle", perCycle <= cycleBudget);
+        } finally {
+            for (StubMemcachedServer server : fleet) {
+                server.close();
+            }
+            configFile.delete();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+                return (com.sun.management.ThreadMXBean) threadBean;
+            }
+        } catch (NoClassDefFoundError e) {
+            //not a HotSpot JVM
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the last allocation counter of every thread seen while it runs, except the threads of the stub servers and
+     * of the sampler itself.
+     */
+    private static class AllocationSampler implements Runnable {
+
+        private final com.sun.management.ThreadMXBean threadBean;
+        private long samplerId = -1;
+        private final Map<Long, Long> before;
+        private final Map<Long, Long> latest = new HashMap<Long, Long>();
+        private final Map<Long, Boolean> measured = new HashMap<Long, Boolean>();
+        private volatile boolean running = true;
+
+        AllocationSampler(com.sun.management.ThreadMXBean threadBean) {
+            this.threadBean = threadBean;
+            this.before = sample();
+        }
+
+        public void run() {
+            samplerId = Thread.currentThread().getId();
+            latest.putAll(before);
+            while (running) {
+                latest.putAll(sample());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            latest.putAll(sample());
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        /**
+         * @return the bytes allocated while the sampler ran, to be called after the sampler thread ended
+         */
+        long getAllocatedBytes() {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> entry : latest.entrySet()) {
+                Long previous = before.get(entry.getKey());
+                allocated += previous != null ? entry.getValue() - previous : entry.getValue();
+            }
+            return allocated;
+        }
+
+        private Map<Long, Long> sample() {
+            long[] ids = threadBean.getAllThreadIds();
+            long[] allocated = threadBean.getThreadAllocatedBytes(ids);
+            Map<Long, Long> allocatedBytes = new HashMap<Long, Long>();
+            for (int i = 0; i < ids.length; i++) {
+                if (allocated[i] >= 0 && ids[i] != samplerId && isMeasured(ids[i])) {
+                    allocatedBytes.put(ids[i], allocated[i]);
+                }
+            }
+            return allocatedBytes;
+        }
+
+        private boolean isMeasured(long id) {
+            Boolean isMeasured = measured.get(id);
+            if (isMeasured == null) {
+                ThreadInfo info = threadBean.getThreadInfo(id);
+                if (info == null) {
+                    return false;
+                }
+                isMeasured = !info.getThreadName().startsWith(StubMemcachedServer.THREAD_PREFIX);
+                measured.put(id, isMeasured);
+            }
+            return isMeasured;
+        }
+    }
+
+    private static void writeConfig(File configFile, List<StubMemcachedServer> fleet) throws Exception {
+        FileWriter writer = new FileWriter(configFile);
+        try {
+            writer.write("metricPrefix: \"Custom Metrics|Memcached\"\n");
+            writer.write("timeout: 10000\n");
+            writer.write("servers:\n");
+            for (int i = 0; i < fleet.size(); i++) {
+                writer.write("  - server: \"localhost:" + fleet.get(i).getPort() + "\"\n");
+                writer.write("    displayName: stub" + i + "\n");
+            }
+            writer.write("metricOverrides:\n");
+            writer.write("  - metricKey: \".*version.*\"\n    disabled: true\n");
+            writer.write("  - metricKey: \".*libevent.*\"\n    disabled: true\n");
+            writer.write("  - metricKey: \".*time\"\n    disabled: true\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.memcached.config.Cluster;
+import com.appdynamics.extensions.memcached.config.Configuration;
+import com.appdynamics.extensions.memcached.config.Server;
+import com.appdynamics.extensions.util.metrics.MetricOverride;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ClusterCollectorTest {
+
+    private static final String PREFIX = "Custom Metrics|Memcached|";
+    private static final String EVICTED = PREFIX + "stub|slabs|1|evicted";
+
+    private StubMemcachedServer server;
+    private ClusterCollector collector;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubMemcachedServer();
+        Configuration config = new Configuration();
+        config.setMetricPrefix(PREFIX);
+        config.setMetricOverrides(new MetricOverride[0]);
+        config.setTimeout(5000);
+        config.setStatsGroups(Lists.newArrayList("slabs"));
+        config.setDetailStatsInterval(2);
+        config.setServers(new Server[]{newServer("localhost:" + server.getPort(), "stub")});
+        Cluster cluster = config.getResolvedClusters().get(0);
+        collector = new ClusterCollector(config, cluster);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        collector.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testDetailCountersAreReportedAsADeltaPerRunOnEveryRun() throws Exception {
+        //the first refresh has no previous value to compute a delta from, nor the run it is served from the cache
+        assertNull(collect().get(EVICTED));
+        assertNull(collect().get(EVICTED));
+
+        String deltaPerRun = String.valueOf(StubMemcachedServer.EVICTED_PER_REQUEST / 2);
+        for (int run = 0; run < 4; run++) {
+            assertEquals("run " + run, deltaPerRun, collect().get(EVICTED));
+        }
+    }
+
+    @Test
+    public void testTieredDeltasStartOverAfterARestart() throws Exception {
+        collect();
+        collect();
+        assertEquals(String.valueOf(StubMemcachedServer.EVICTED_PER_REQUEST / 2), collect().get(EVICTED));
+        server.restart();
+        //refreshed on the restart, without a delta against the counters from before the restart
+        assertNull(collect().get(EVICTED));
+        assertNull(collect().get(EVICTED));
+        assertEquals(String.valueOf(StubMemcachedServer.EVICTED_PER_REQUEST / 2), collect().get(EVICTED));
+    }
+
+    @Test
+    public void testHotCountersAreReportedAsADeltaOfTheRun() throws Exception {
+        collect();
+        assertEquals("17", collect().get(PREFIX + "stub|cmd_get"));
+        assertEquals("17", collect().get(PREFIX + "stub|cmd_get"));
+    }
+
+    @Test
+    public void testNonNumericMcrouterStatsAreSkipped() throws Exception {
+        Configuration config = new Configuration();
+        config.setMetricPrefix(PREFIX);
+        config.setMetricOverrides(new MetricOverride[0]);
+        config.setTimeout(5000);
+        config.setIgnoreDelta(Sets.newHashSet("curr_items"));
+        Server mcrouter = newServer("localhost:" + server.getPort(), "router");
+        mcrouter.setType(Server.TYPE_MCROUTER);
+        config.setServers(new Server[]{mcrouter});
+        collector.setConfig(config, config.getResolvedClusters().get(0));
+
+        Map<String, String> printed = collect();
+        assertEquals(ClusterCollector.SUCCESS, printed.get(PREFIX + "router|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+        assertNotNull(printed.get(PREFIX + "router|curr_items"));
+        assertNull(printed.get(PREFIX + "router|version"));
+        assertNull(printed.get(PREFIX + "router|libevent"));
+    }
+
+    @Test
+    public void testUnreachableServerIsReportedAsFailedWithoutItsCachedTiers() throws Exception {
+        StubMemcachedServer proxy = new StubMemcachedServer();
+        Configuration config = new Configuration();
+        config.setMetricPrefix(PREFIX);
+        config.setMetricOverrides(new MetricOverride[0]);
+        config.setTimeout(5000);
+        config.setStatsGroups(Lists.newArrayList("slabs"));
+        config.setDetailStatsInterval(5);
+        config.setIgnoreDelta(Sets.newHashSet("slabs|1|chunk_size"));
+        Server proxyServer = newServer("localhost:" + proxy.getPort(), "proxy");
+        proxyServer.setType(Server.TYPE_PROXY);
+        config.setServers(new Server[]{proxyServer});
+        collector.setConfig(config, config.getResolvedClusters().get(0));
+
+        Map<String, String> printed = collect();
+        assertEquals(ClusterCollector.SUCCESS, printed.get(PREFIX + "proxy|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+        assertEquals("96", printed.get(PREFIX + "proxy|slabs|1|chunk_size"));
+
+        proxy.close();
+        printed = collect();
+        assertEquals(ClusterCollector.FAILED, printed.get(PREFIX + "proxy|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+        assertNull(printed.get(PREFIX + "proxy|slabs|1|chunk_size"));
+    }
+
+    @Test
+    public void testExecutorIsResizedWhenMaxConcurrencyChanges() {
+        Configuration config = new Configuration();
+        config.setMetricPrefix(PREFIX);
+        config.setServers(new Server[]{newServer("localhost:" + server.getPort(), "stub")});
+        Cluster cluster = config.getResolvedClusters().get(0);
+        cluster.setMaxConcurrency(8);
+        collector.setConfig(config, cluster);
+        assertEquals(8, collector.getExecutorPoolSize());
+        cluster.setMaxConcurrency(2);
+        collector.setConfig(config, cluster);
+        assertEquals(2, collector.getExecutorPoolSize());
+    }
+
+    private Map<String, String> collect() throws Exception {
+        final Map<String, String> printed = new HashMap<String, String>();
+        collector.collect(new MetricPrinter() {
+            public void printMetric(String metricName, String metricValue, String aggType, String timeRollupType, String clusterRollupType) {
+                printed.put(metricName, metricValue);
+            }
+        });
+        return printed;
+    }
+
+    private static Server newServer(String address, String displayName) {
+        Server server = new Server();
+        server.setServer(address);
+        server.setDisplayName(displayName);
+        return server;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class ConnectionAnalyzerTest {
+
+    @Test
+    public void testOnlyTheNoisiestSourcesAreReported() {
+        ConnectionAnalyzer.Analysis conns = new ConnectionAnalyzer(1, 32).newAnalysis();
+        addConnection(conns, 5, "udp:0.0.0.0:11211", "conn_listening", 0);
+        addConnection(conns, 20, "tcp:10.0.0.1:40001", "conn_waiting", 120);
+        addConnection(conns, 21, "tcp:10.0.0.1:40002", "conn_waiting", 300);
+        addConnection(conns, 22, "tcp:10.0.0.1:40003", "conn_waiting", 30);
+        addConnection(conns, 23, "tcp:10.0.0.2:40001", "conn_read", 0);
+        addConnection(conns, 24, "tcp:10.0.0.2:40002", "conn_mwrite", 0);
+        addConnection(conns, 25, "tcp:10.0.1.7:40001", "conn_new_cmd", 2);
+
+        Map<String, String> analysis = conns.getMetrics();
+        assertEquals("3", analysis.get(ConnectionAnalyzer.CLIENT_SOURCES));
+        assertEquals("2", analysis.get("Connections|10.0.0.2|Count"));
+        assertEquals("2", analysis.get("Connections|10.0.0.2|Idle Under 1s"));
+        assertEquals("1", analysis.get("Connections|10.0.0.2|State|read"));
+        assertEquals("1", analysis.get("Connections|10.0.0.2|State|mwrite"));
+        assertNull(analysis.get("Connections|10.0.0.1|Count"));
+        assertEquals("4", analysis.get("Connections|Other Sources|Count"));
+        assertEquals("2", analysis.get("Connections|Other Sources|Idle Over 60s"));
+        assertEquals("2", analysis.get("Connections|Other Sources|Idle 1s To 60s"));
+        assertEquals("3", analysis.get("Connections|Other Sources|State|waiting"));
+    }
+
+    @Test
+    public void testSourcesAreAggregatedPerSubnet() {
+        ConnectionAnalyzer analyzer = new ConnectionAnalyzer(10, 24);
+        assertEquals("10.0.1.0_24", analyzer.getSource("tcp:10.0.1.7:40001"));
+        assertEquals("::1", analyzer.getSource("tcp6:[::1]:40001").replace('_', ':'));
+        assertEquals("unix", analyzer.getSource("unix:/var/run/memcached.sock"));
+    }
+
+    private void addConnection(ConnectionAnalyzer.Analysis conns, int fd, String addr, String state, int idleSecs) {
+        conns.stat(fd + ":addr", addr);
+        conns.stat(fd + ":state", state);
+        conns.stat(fd + ":secs_since_last_cmd", String.valueOf(idleSecs));
+        conns.stat(fd + ":rbuf_size", "2048");
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class EmissionFilterTest {
+
+    @Test
+    public void testUnchangedValueIsSuppressed() {
+        EmissionFilter filter = new EmissionFilter(10);
+        assertTrue(filter.shouldEmit("Custom Metrics|Memcached|curr_items", BigInteger.ZERO));
+        assertFalse(filter.shouldEmit("Custom Metrics|Memcached|curr_items", BigInteger.ZERO));
+        assertTrue(filter.shouldEmit("Custom Metrics|Memcached|curr_items", BigInteger.ONE));
+        assertTrue(filter.shouldEmit("Custom Metrics|Memcached|bytes", BigInteger.ONE));
+    }
+
+    @Test
+    public void testValueIsEmittedAfterHeartbeat() {
+        EmissionFilter filter = new EmissionFilter(0);
+        assertTrue(filter.shouldEmit("Custom Metrics|Memcached|curr_items", BigInteger.ZERO));
+        assertTrue(filter.shouldEmit("Custom Metrics|Memcached|curr_items", BigInteger.ZERO));
+    }
+}
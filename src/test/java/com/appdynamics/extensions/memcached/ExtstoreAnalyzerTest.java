@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class ExtstoreAnalyzerTest {
+
+    private static final String SERVER = "localhost/127.0.0.1:11211";
+
+    ExtstoreAnalyzer analyzer = new ExtstoreAnalyzer();
+
+    @Test
+    public void testRatesAreComputedFromThePreviousSample() {
+        Map<String, String> first = analyzer.analyze(SERVER, generalStats(100, 1000, 200, 5000, 10000), null);
+        assertNull(first.get(ExtstoreAnalyzer.FLASH_HIT_RATE));
+        assertEquals("3000", first.get(ExtstoreAnalyzer.MEMORY_BYTES));
+        assertEquals("9000", first.get(ExtstoreAnalyzer.FLASH_BYTES));
+        assertEquals("75", first.get(ExtstoreAnalyzer.FLASH_BYTES_PERCENT));
+
+        Map<String, String> second = analyzer.analyze(SERVER, generalStats(110, 1400, 300, 6000, 12000), null);
+        assertEquals("25", second.get(ExtstoreAnalyzer.FLASH_HIT_RATE));
+        assertEquals("100", second.get(ExtstoreAnalyzer.READ_BYTES_PER_SEC));
+        assertEquals("200", second.get(ExtstoreAnalyzer.WRITE_BYTES_PER_SEC));
+        assertNull(second.get(ExtstoreAnalyzer.PAGE_FILL_PERCENT));
+    }
+
+    @Test
+    public void testPageFillIsServedUntilTheNextRefresh() {
+        Map<String, String> extstoreStats = Maps.newHashMap();
+        extstoreStats.put("page_size", "1000");
+        extstoreStats.put("0:bytes", "900");
+        extstoreStats.put("1:bytes", "300");
+        extstoreStats.put("0:version", "12");
+
+        assertEquals("60", analyzer.analyze(SERVER, generalStats(100, 0, 0, 0, 0), extstoreStats).get(ExtstoreAnalyzer.PAGE_FILL_PERCENT));
+        assertEquals("60", analyzer.analyze(SERVER, generalStats(110, 0, 0, 0, 0), null).get(ExtstoreAnalyzer.PAGE_FILL_PERCENT));
+    }
+
+    @Test
+    public void testExtstoreIsDetectedFromTheGeneralStats() {
+        assertTrue(ExtstoreAnalyzer.isEnabled(generalStats(100, 0, 0, 0, 0)));
+        assertFalse(ExtstoreAnalyzer.isEnabled(Maps.<String, String>newHashMap()));
+    }
+
+    @Test
+    public void testGaugesAreClassified() {
+        assertTrue(ExtstoreAnalyzer.isGauge(Metrics.EXTSTORE_IO_QUEUE));
+        assertTrue(ExtstoreAnalyzer.isGauge(Metrics.EXTSTORE_BYTES_USED));
+        assertTrue(ExtstoreAnalyzer.isGauge(Metrics.EXTSTORE_PAGES_FREE));
+        assertTrue(ExtstoreAnalyzer.isGauge(Metrics.EXTSTORE_LIMIT_MAXBYTES));
+        assertFalse(ExtstoreAnalyzer.isGauge(Metrics.EXTSTORE_BYTES_READ));
+        assertFalse(ExtstoreAnalyzer.isGauge(Metrics.EXTSTORE_OBJECTS_WRITTEN));
+    }
+
+    private Map<String, String> generalStats(long uptime, long getHits, long getExtstore, long bytesRead, long bytesWritten) {
+        Map<String, String> stats = Maps.newHashMap();
+        stats.put(Metrics.UPTIME, String.valueOf(uptime));
+        stats.put(Metrics.GET_HITS, String.valueOf(getHits));
+        stats.put(Metrics.GET_EXTSTORE, String.valueOf(getExtstore));
+        stats.put(Metrics.EXTSTORE_BYTES_READ, String.valueOf(bytesRead));
+        stats.put(Metrics.EXTSTORE_BYTES_WRITTEN, String.valueOf(bytesWritten));
+        stats.put(Metrics.BYTES, "3000");
+        stats.put(Metrics.EXTSTORE_BYTES_USED, "9000");
+        stats.put(Metrics.EXTSTORE_PAGES_USED, "2");
+        return stats;
+    }
+}
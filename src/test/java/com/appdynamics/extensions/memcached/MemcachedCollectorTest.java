@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.memcached.config.Cluster;
+import com.appdynamics.extensions.memcached.config.Configuration;
+import com.appdynamics.extensions.memcached.config.Server;
+import com.appdynamics.extensions.util.metrics.MetricOverride;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MemcachedCollectorTest {
+
+    private static final String PREFIX = "Custom Metrics|Memcached|";
+
+    @Test(timeout = 60000)
+    public void testHungClusterDoesNotBlockTheOthers() throws Exception {
+        StubMemcachedServer healthy = new StubMemcachedServer();
+        StubMemcachedServer hung = new StubMemcachedServer(true);
+        try {
+            Configuration config = new Configuration();
+            config.setMetricPrefix(PREFIX);
+            config.setMetricOverrides(new MetricOverride[0]);
+            //reported on the first run
+            config.setIgnoreDelta(Sets.newHashSet("curr_items"));
+            config.setClusters(new Cluster[]{
+                    newCluster("healthy", healthy, 10000),
+                    newCluster("hung", hung, 2000)});
+            MemcachedCollector collector = new MemcachedCollector();
+            collector.setConfig(config);
+
+            final Map<String, String> printed = new HashMap<String, String>();
+            long start = System.currentTimeMillis();
+            try {
+                collector.collect(new MetricPrinter() {
+                    public void printMetric(String metricName, String metricValue, String aggType, String timeRollupType, String clusterRollupType) {
+                        printed.put(metricName, metricValue);
+                    }
+                });
+            } catch (Exception e) {
+                //the read timeout of the hung server and the deadline of its cluster expire at about the same time
+                assertEquals("1 of 2 clusters failed", e.getMessage());
+            }
+            //the healthy cluster is reported without waiting for its own deadline
+            assertTrue(System.currentTimeMillis() - start < 10000);
+
+            assertEquals(ClusterCollector.SUCCESS, printed.get(PREFIX + "healthy|node|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+            assertNotNull(printed.get(PREFIX + "healthy|node|curr_items"));
+            assertEquals(ClusterCollector.FAILED, printed.get(PREFIX + "hung|node|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+        } finally {
+            healthy.close();
+            hung.close();
+        }
+    }
+
+    @Test
+    public void testClustersAreResolvedWithoutChangingTheConfig() {
+        Configuration config = new Configuration();
+        config.setMetricPrefix(PREFIX);
+        config.setTimeout(3000);
+        config.setMaxConcurrency(4);
+        Server server = new Server();
+        server.setServer("localhost:11211");
+        config.setServers(new Server[]{server});
+        Cluster named = new Cluster();
+        named.setName("staging");
+        named.setServers(new Server[]{server, server, server, server, server});
+        named.setMaxConcurrency(2);
+        config.setClusters(new Cluster[]{named});
+
+        List<Cluster> resolved = config.getResolvedClusters();
+        assertEquals(4, resolved.get(0).getMaxConcurrency());
+        assertEquals(3000, resolved.get(0).getDeadline());
+        assertEquals(PREFIX + "staging|", resolved.get(1).getMetricPrefix());
+        assertEquals(3000, resolved.get(1).getTimeout());
+        //5 servers collected 2 at a time
+        assertEquals(9000, resolved.get(1).getDeadline());
+
+        assertNull(named.getMetricPrefix());
+        assertEquals(0, named.getTimeout());
+        assertNotSame(named, resolved.get(1));
+    }
+
+    @Test
+    public void testInvalidStatsFilterKeepsTheCurrentConfig() throws Exception {
+        StubMemcachedServer server = new StubMemcachedServer();
+        try {
+            Configuration config = new Configuration();
+            config.setMetricPrefix(PREFIX);
+            config.setMetricOverrides(new MetricOverride[0]);
+            config.setClusters(new Cluster[]{newCluster("first", server, 5000), newCluster("second", server, 5000)});
+            MemcachedCollector collector = new MemcachedCollector();
+            collector.setConfig(config);
+
+            Configuration invalid = new Configuration();
+            invalid.setMetricPrefix(PREFIX);
+            invalid.setMetricOverrides(new MetricOverride[0]);
+            invalid.setStatsExclude(Lists.newArrayList("slabs|(.*"));
+            invalid.setClusters(new Cluster[]{newCluster("first", server, 5000), newCluster("second", server, 5000)});
+            try {
+                collector.setConfig(invalid);
+                fail("The invalid pattern is rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("statsExclude"));
+            }
+
+            final Map<String, String> printed = new HashMap<String, String>();
+            collector.collect(new MetricPrinter() {
+                public void printMetric(String metricName, String metricValue, String aggType, String timeRollupType, String clusterRollupType) {
+                    printed.put(metricName, metricValue);
+                }
+            });
+            assertSame(config, collector.getConfig());
+            assertEquals(ClusterCollector.SUCCESS, printed.get(PREFIX + "first|node|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+            assertEquals(ClusterCollector.SUCCESS, printed.get(PREFIX + "second|node|" + ClusterCollector.METRICS_COLLECTION_SUCCESSFUL));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testUnknownServerTypeIsRejected() throws Exception {
+        File configFile = File.createTempFile("memcached-type", ".yaml");
+        try {
+            FileWriter writer = new FileWriter(configFile);
+            try {
+                writer.write("metricPrefix: \"Custom Metrics|Memcached|\"\n");
+                writer.write("servers:\n");
+                writer.write("  - server: \"localhost:5000\"\n");
+                writer.write("    displayName: router\n");
+                writer.write("    type: mcroutr\n");
+            } finally {
+                writer.close();
+            }
+            MemcachedCollector.readConfig(configFile);
+            fail("The unknown type is rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("mcroutr"));
+        } finally {
+            configFile.delete();
+        }
+    }
+
+    private static Cluster newCluster(String name, StubMemcachedServer stub, long timeout) {
+        Server server = new Server();
+        server.setServer("localhost:" + stub.getPort());
+        server.setDisplayName("node");
+        Cluster cluster = new Cluster();
+        cluster.setName(name);
+        cluster.setMetricPrefix(PREFIX + name + "|");
+        cluster.setTimeout(timeout);
+        cluster.setServers(new Server[]{server});
+        return cluster;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class PrometheusSnapshotTest {
+
+    PrometheusSnapshot snapshot = new PrometheusSnapshot();
+
+    @Test
+    public void testSnapshotIsRenderedPerFamily() throws IOException {
+        snapshot.setMetricPaths(Collections.<String, String>singletonMap("Custom Metrics|Memcached|", null), Lists.newArrayList("node1", "node2"));
+        snapshot.printMetric("Custom Metrics|Memcached|node1|curr_items", "5", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|node1|slabs|1|chunk_size", "96", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|node2|curr_items", "7", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|Distinct Configurations", "1", null, null, null);
+        assertEquals("", render());
+
+        snapshot.publish();
+        assertEquals("# TYPE memcached_curr_items gauge\n"
+                + "memcached_curr_items{server=\"node1\"} 5\n"
+                + "memcached_curr_items{server=\"node2\"} 7\n"
+                + "# TYPE memcached_distinct_configurations gauge\n"
+                + "memcached_distinct_configurations 1\n"
+                + "# TYPE memcached_slabs_chunk_size gauge\n"
+                + "memcached_slabs_chunk_size{server=\"node1\",slab=\"1\"} 96\n", render());
+        //served until the next cycle is published
+        assertEquals(render(), render());
+    }
+
+    @Test
+    public void testClusterLabel() throws IOException {
+        Map<String, String> clusterPrefixes = new HashMap<String, String>();
+        clusterPrefixes.put("Custom Metrics|Memcached|", null);
+        clusterPrefixes.put("Custom Metrics|Memcached|staging|", "staging");
+        snapshot.setMetricPaths(clusterPrefixes, Lists.newArrayList("node1"));
+        snapshot.printMetric("Custom Metrics|Memcached|staging|node1|curr_items", "5", null, null, null);
+        snapshot.publish();
+        assertEquals("# TYPE memcached_curr_items gauge\n"
+                + "memcached_curr_items{cluster=\"staging\",server=\"node1\"} 5\n", render());
+    }
+
+    @Test
+    public void testIdentifiersAreLabels() throws IOException {
+        snapshot.setMetricPaths(Collections.<String, String>singletonMap("Custom Metrics|Memcached|", null), Lists.newArrayList("router"));
+        snapshot.printMetric("Custom Metrics|Memcached|router|Proxy|Destinations|10.0.0.1_11211|Avg Latency Us", "250", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|router|Proxy|Destinations|Count", "1", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|router|Proxy|Routes|main", "40", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|router|Connections|10.0.1.0_24|Count", "3", null, null, null);
+        snapshot.printMetric("Custom Metrics|Memcached|router|Connections|Client Sources", "1", null, null, null);
+        snapshot.publish();
+        assertEquals("# TYPE memcached_connections_client_sources gauge\n"
+                + "memcached_connections_client_sources{server=\"router\"} 1\n"
+                + "# TYPE memcached_connections_count gauge\n"
+                + "memcached_connections_count{server=\"router\",source=\"10.0.1.0_24\"} 3\n"
+                + "# TYPE memcached_proxy_destinations_avg_latency_us gauge\n"
+                + "memcached_proxy_destinations_avg_latency_us{server=\"router\",destination=\"10.0.0.1_11211\"} 250\n"
+                + "# TYPE memcached_proxy_destinations_count gauge\n"
+                + "memcached_proxy_destinations_count{server=\"router\"} 1\n"
+                + "# TYPE memcached_proxy_routes gauge\n"
+                + "memcached_proxy_routes{server=\"router\",route=\"main\"} 40\n", render());
+    }
+
+    @Test(timeout = 10000)
+    public void testStalledScrapeDoesNotBlockPublish() throws Exception {
+        snapshot.setMetricPaths(Collections.<String, String>singletonMap("Custom Metrics|Memcached|", null), Lists.newArrayList("node1"));
+        snapshot.printMetric("Custom Metrics|Memcached|node1|curr_items", "5", null, null, null);
+        snapshot.publish();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread scraper = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    snapshot.writeTo(new ByteArrayOutputStream(), new PrometheusSnapshot.SnapshotWriter() {
+                        public void begin(int size) {
+                            writing.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    //ignore
+                }
+            }
+        });
+        scraper.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        try {
+            snapshot.printMetric("Custom Metrics|Memcached|node1|curr_items", "6", null, null, null);
+            snapshot.publish();
+            snapshot.printMetric("Custom Metrics|Memcached|node1|curr_items", "7", null, null, null);
+            snapshot.publish();
+            assertEquals("# TYPE memcached_curr_items gauge\n"
+                    + "memcached_curr_items{server=\"node1\"} 7\n", render());
+        } finally {
+            release.countDown();
+            scraper.join();
+        }
+    }
+
+    private String render() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out, new PrometheusSnapshot.SnapshotWriter() {
+            public void begin(int size) {
+            }
+        });
+        return out.toString("UTF-8");
+    }
+}
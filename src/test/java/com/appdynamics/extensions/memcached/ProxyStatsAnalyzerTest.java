@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class ProxyStatsAnalyzerTest {
+
+    ProxyStatsAnalyzer analyzer = new ProxyStatsAnalyzer(1, 1);
+
+    @Test
+    public void testOnlyTheBusiestDestinationsAreReported() {
+        Map<String, String> servers = Maps.newHashMap();
+        servers.put("10.0.0.1:11211:ascii:plain:notcompressed-1000",
+                "avg_latency_us:302.4 pending_reqs:0 inflight_reqs:2 avg_retrans_ratio:0.0000 up:2; found:120 notfound:15 timeout:1");
+        servers.put("[::1]:11211:ascii:plain:notcompressed-1000",
+                "avg_latency_us:80.0 pending_reqs:0 inflight_reqs:0 up:1; found:3");
+
+        Map<String, String> analysis = analyzer.analyzeDestinations(servers);
+        assertEquals("2", analysis.get("Proxy|Destinations|Count"));
+        assertEquals("302", analysis.get("Proxy|Destinations|10.0.0.1_11211|Avg Latency Us"));
+        assertEquals("2", analysis.get("Proxy|Destinations|10.0.0.1_11211|Inflight Requests"));
+        assertEquals("2", analysis.get("Proxy|Destinations|10.0.0.1_11211|States|up"));
+        assertEquals("120", analysis.get("Proxy|Destinations|10.0.0.1_11211|Results|found"));
+        assertEquals("1", analysis.get("Proxy|Destinations|10.0.0.1_11211|Results|timeout"));
+        assertNull(analysis.get("Proxy|Destinations|10.0.0.1_11211|Results|avg_retrans_ratio"));
+        assertNull(analysis.get("Proxy|Destinations|__1_11211|Results|found"));
+        assertEquals("__1_11211", ProxyStatsAnalyzer.getDestination("[::1]:11211:ascii:plain:notcompressed-1000"));
+    }
+
+    @Test
+    public void testRoutesAreReportedSeparatelyFromTheProxyCounters() {
+        Map<String, String> proxyStats = Maps.newHashMap();
+        proxyStats.put("proxy_conn_requests", "500");
+        proxyStats.put("proxy_req_active", "3");
+        proxyStats.put("route_main", "400");
+        proxyStats.put("route_fallback", "100");
+
+        Map<String, String> analysis = analyzer.analyzeRoutes(proxyStats);
+        assertEquals("500", analysis.get("Proxy|proxy_conn_requests"));
+        assertEquals("3", analysis.get("Proxy|proxy_req_active"));
+        assertEquals("2", analysis.get("Proxy|Routes|Count"));
+        assertEquals("400", analysis.get("Proxy|Routes|route_main"));
+        assertNull(analysis.get("Proxy|Routes|route_fallback"));
+    }
+
+    @Test
+    public void testGaugesAreNotReportedAsDeltas() {
+        assertTrue(ProxyStatsAnalyzer.isGauge("Proxy|Destinations|10.0.0.1_11211|Avg Latency Us"));
+        assertTrue(ProxyStatsAnalyzer.isGauge("Proxy|Destinations|10.0.0.1_11211|States|up"));
+        assertTrue(ProxyStatsAnalyzer.isGauge("Proxy|proxy_req_active"));
+        assertFalse(ProxyStatsAnalyzer.isGauge("Proxy|Destinations|10.0.0.1_11211|Results|found"));
+        assertFalse(ProxyStatsAnalyzer.isGauge("Proxy|Routes|route_main"));
+        assertFalse(ProxyStatsAnalyzer.isGauge("curr_connections"));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SettingsFingerprinterTest {
+
+    SettingsFingerprinter fingerprinter = new SettingsFingerprinter();
+
+    @Test
+    public void testChangeIsDetected() {
+        assertFalse(fingerprinter.update("node1", settings("67108864", "4")));
+        assertFalse(fingerprinter.update("node1", settings("67108864", "4")));
+        assertTrue(fingerprinter.update("node1", settings("134217728", "4")));
+        assertFalse(fingerprinter.update("node1", settings("134217728", "4")));
+    }
+
+    @Test
+    public void testDistinctConfigurations() {
+        fingerprinter.update("node1", settings("67108864", "4"));
+        fingerprinter.update("node2", settings("67108864", "4"));
+        assertEquals(1, fingerprinter.getDistinctCount());
+        fingerprinter.update("node3", settings("67108864", "8"));
+        assertEquals(2, fingerprinter.getDistinctCount());
+        fingerprinter.retain(Lists.newArrayList("node1", "node2"));
+        assertEquals(1, fingerprinter.getDistinctCount());
+    }
+
+    @Test
+    public void testIdentitySettingsAreIgnored() {
+        Map<String, String> node1 = settings("67108864", "4");
+        node1.put("tcpport", "11211");
+        node1.put("inter", "10.0.0.1");
+        Map<String, String> node2 = settings("67108864", "4");
+        node2.put("tcpport", "11212");
+        node2.put("inter", "10.0.0.2");
+        assertFalse(fingerprinter.update("node1", node1));
+        assertFalse(fingerprinter.update("node2", node2));
+        assertEquals(1, fingerprinter.getDistinctCount());
+        node1.put("oldest", "3600");
+        assertFalse(fingerprinter.update("node1", node1));
+    }
+
+    private Map<String, String> settings(String maxBytes, String threads) {
+        Map<String, String> settings = Maps.newHashMap();
+        settings.put("maxbytes", maxBytes);
+        settings.put("num_threads", threads);
+        settings.put("evictions", "on");
+        return settings;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class SlabRebalanceAnalyzerTest {
+
+    private static final String SERVER = "localhost/127.0.0.1:11211";
+
+    SlabRebalanceAnalyzer analyzer = new SlabRebalanceAnalyzer();
+
+    @Test
+    public void testMisallocationIsComputedFromThePreviousSample() {
+        Map<String, String> slabs = Maps.newHashMap();
+        //class 1 evicts, class 2 holds 3 free pages out of 10 pages in total
+        slabs.put("1:chunks_per_page", "100");
+        slabs.put("1:total_pages", "5");
+        slabs.put("1:free_chunks", "0");
+        slabs.put("2:chunks_per_page", "10");
+        slabs.put("2:total_pages", "5");
+        slabs.put("2:free_chunks", "25");
+        slabs.put("2:free_chunks_end", "5");
+        slabs.put("active_slabs", "2");
+
+        Map<String, String> firstSample = analyzer.analyze(SERVER, slabs, items(1000, 0));
+        assertEquals("0", firstSample.get(SlabRebalanceAnalyzer.MISALLOCATION_SCORE));
+        assertEquals("0", firstSample.get(SlabRebalanceAnalyzer.RECOMMENDED_PAGE_MOVES));
+
+        //150 evictions in class 1 need 2 pages
+        Map<String, String> secondSample = analyzer.analyze(SERVER, slabs, items(1150, 0));
+        assertEquals("30", secondSample.get(SlabRebalanceAnalyzer.MISALLOCATION_SCORE));
+        assertEquals("2", secondSample.get(SlabRebalanceAnalyzer.RECOMMENDED_PAGE_MOVES));
+        assertEquals("1", secondSample.get(SlabRebalanceAnalyzer.EVICTING_CLASSES));
+
+        Map<String, String> thirdSample = analyzer.analyze(SERVER, slabs, items(1150, 0));
+        assertEquals("0", thirdSample.get(SlabRebalanceAnalyzer.MISALLOCATION_SCORE));
+        assertEquals("0", thirdSample.get(SlabRebalanceAnalyzer.EVICTING_CLASSES));
+    }
+
+    private Map<String, String> items(long evictedClass1, long evictedClass2) {
+        Map<String, String> items = Maps.newHashMap();
+        items.put("items:1:evicted", String.valueOf(evictedClass1));
+        items.put("items:1:number", "500");
+        items.put("items:2:evicted", String.valueOf(evictedClass2));
+        return items;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SocketStatsClientTest {
+
+    @Test
+    public void testStatsAreParsed() throws Exception {
+        ServerSocket serverSocket = startServer();
+        SocketStatsClient statsClient = new SocketStatsClient(new Socket("localhost", serverSocket.getLocalPort()), 5000);
+        try {
+            Map<String, String> stats = statsClient.getStats(null, null);
+            assertEquals("42", stats.get("curr_items"));
+            assertEquals("1.4.13", stats.get("version"));
+            Map<String, String> slabs = statsClient.getStats("slabs", null);
+            assertEquals("96", slabs.get("1:chunk_size"));
+            assertEquals(2, slabs.size());
+        } finally {
+            statsClient.close();
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testFilterIsAppliedWhileParsing() throws Exception {
+        ServerSocket serverSocket = startServer();
+        SocketStatsClient statsClient = new SocketStatsClient(new InetSocketAddress("localhost", serverSocket.getLocalPort()), 5000);
+        StatsFilter filter = new StatsFilter(null, Arrays.asList("version", "slabs\\|.*\\|chunk_size", "pid"));
+        try {
+            Map<String, String> stats = statsClient.getStats(null, filter);
+            assertEquals("42", stats.get("curr_items"));
+            assertFalse(stats.containsKey("version"));
+            //required to detect restarts, dropped once used
+            assertTrue(stats.containsKey("pid"));
+            filter.retain(stats);
+            assertFalse(stats.containsKey("pid"));
+            Map<String, String> slabs = statsClient.getStats("slabs", filter);
+            assertEquals(1, slabs.size());
+            assertEquals("1", slabs.get("active_slabs"));
+        } finally {
+            statsClient.close();
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testConnsAreFoldedWhileParsing() throws Exception {
+        ServerSocket serverSocket = startServer();
+        SocketStatsClient statsClient = new SocketStatsClient(new InetSocketAddress("localhost", serverSocket.getLocalPort()), 5000);
+        try {
+            ConnectionAnalyzer.Analysis analysis = new ConnectionAnalyzer(10, 32).newAnalysis();
+            statsClient.readStats("conns", analysis);
+            Map<String, String> metrics = analysis.getMetrics();
+            assertEquals("1", metrics.get(ConnectionAnalyzer.CLIENT_SOURCES));
+            assertEquals("2", metrics.get("Connections|10.0.0.1|Count"));
+            assertEquals("1", metrics.get("Connections|10.0.0.1|Idle Over 60s"));
+            assertEquals("1", metrics.get("Connections|10.0.0.1|State|read"));
+        } finally {
+            statsClient.close();
+            serverSocket.close();
+        }
+    }
+
+    private ServerSocket startServer() throws IOException {
+        final ServerSocket serverSocket = new ServerSocket(0);
+        Thread server = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket socket = serverSocket.accept();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                    OutputStream out = socket.getOutputStream();
+                    String command;
+                    while ((command = reader.readLine()) != null) {
+                        if (command.equals("stats")) {
+                            out.write("STAT pid 1234\r\nSTAT version 1.4.13\r\nSTAT curr_items 42\r\nEND\r\n".getBytes());
+                        } else if (command.equals("stats slabs")) {
+                            out.write("STAT 1:chunk_size 96\r\nSTAT active_slabs 1\r\nEND\r\n".getBytes());
+                        } else if (command.equals("stats conns")) {
+                            out.write(("STAT 5:addr udp:0.0.0.0:11211\r\nSTAT 5:state conn_listening\r\n"
+                                    + "STAT 20:addr tcp:10.0.0.1:40001\r\nSTAT 20:state conn_waiting\r\nSTAT 20:secs_since_last_cmd 120\r\n"
+                                    + "STAT 21:addr tcp:10.0.0.1:40002\r\nSTAT 21:state conn_read\r\nSTAT 21:secs_since_last_cmd 0\r\n"
+                                    + "END\r\n").getBytes());
+                        } else {
+                            out.write("ERROR\r\n".getBytes());
+                        }
+                        out.flush();
+                    }
+                    socket.close();
+                } catch (IOException e) {
+                    //test server closed
+                }
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+        return serverSocket;
+    }
+}
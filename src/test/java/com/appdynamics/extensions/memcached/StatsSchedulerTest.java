@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import com.appdynamics.extensions.util.metrics.Metric;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatsSchedulerTest {
+
+    private static final String SERVER = "localhost/127.0.0.1:11211";
+
+    StatsScheduler scheduler = new StatsScheduler();
+
+    @Test
+    public void testDetailGroupIsFetchedEveryNRuns() {
+        scheduler.nextRun();
+        assertTrue(scheduler.isDue(SERVER, "slabs", 3, 60));
+        scheduler.update(SERVER, "slabs", new ArrayList<Metric>());
+        scheduler.nextRun();
+        assertFalse(scheduler.isDue(SERVER, "slabs", 3, 60));
+        scheduler.nextRun();
+        assertFalse(scheduler.isDue(SERVER, "slabs", 3, 60));
+        scheduler.nextRun();
+        assertTrue(scheduler.isDue(SERVER, "slabs", 3, 60));
+    }
+
+    @Test
+    public void testStaticGroupIsServedFromCache() {
+        scheduler.nextRun();
+        assertNull(scheduler.getCached(SERVER, "settings"));
+        scheduler.update(SERVER, "settings", new ArrayList<Metric>());
+        scheduler.nextRun();
+        assertFalse(scheduler.isDue(SERVER, "settings", 5, 60));
+        assertNotNull(scheduler.getCached(SERVER, "settings"));
+    }
+
+    @Test
+    public void testHotGroupIsNotCached() {
+        scheduler.nextRun();
+        scheduler.update(SERVER, "sizes", new ArrayList<Metric>());
+        assertNull(scheduler.getCached(SERVER, "sizes"));
+        assertTrue(scheduler.isDue(SERVER, "sizes", 5, 60));
+    }
+
+    @Test
+    public void testRestartRefreshesAllTiers() {
+        Map<String, String> stats = Maps.newHashMap();
+        stats.put("pid", "100");
+        stats.put("uptime", "5000");
+        scheduler.nextRun();
+        assertFalse(scheduler.checkRestart(SERVER, stats));
+        scheduler.update(SERVER, "settings", new ArrayList<Metric>());
+        scheduler.update(SERVER, "slabs", new ArrayList<Metric>());
+
+        stats.put("uptime", "10");
+        scheduler.nextRun();
+        assertTrue(scheduler.checkRestart(SERVER, stats));
+        assertTrue(scheduler.isDue(SERVER, "settings", 5, 60));
+        assertTrue(scheduler.isDue(SERVER, "slabs", 5, 60));
+    }
+
+    @Test
+    public void testRemovedServersAreDropped() {
+        scheduler.nextRun();
+        scheduler.update(SERVER, "slabs", new ArrayList<Metric>());
+        scheduler.update("localhost/127.0.0.1:11212", "slabs", new ArrayList<Metric>());
+        scheduler.retain(Collections.singletonList("localhost/127.0.0.1:11212"));
+        assertNull(scheduler.getCached(SERVER, "slabs"));
+        assertNotNull(scheduler.getCached("localhost/127.0.0.1:11212", "slabs"));
+    }
+}
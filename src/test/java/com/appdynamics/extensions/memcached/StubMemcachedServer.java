@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018. AppDynamics LLC and its affiliates.
+ * All Rights Reserved.
+ * This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.
+ */
+
+package com.appdynamics.extensions.memcached;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-process memcached server answering the stats commands of the text protocol, as used by
+ * {@link SocketStatsClient}, with a fixed set of stats shaped like the output of memcached 1.4. The counters of a group
+ * grow on every request of that group so that deltas are reported, the "evicted" counters of "slabs" and "items" by
+ * {@link #EVICTED_PER_REQUEST} per request. Other commands are answered with an error.
+ * A server created with hanging set reads the requests and never answers them.
+ * All the threads of the server are named with {@link #THREAD_PREFIX}.
+ */
+public class StubMemcachedServer {
+
+    public static final String THREAD_PREFIX = "stub-memcached-";
+    public static final int EVICTED_PER_REQUEST = 10;
+
+    private static final String[] GENERAL_STATS = {
+            "pid", "uptime", "time", "version", "libevent", "pointer_size", "rusage_user", "rusage_system",
+            "curr_connections", "total_connections", "connection_structures", "reserved_fds", "cmd_get", "cmd_set",
+            "cmd_flush", "cmd_touch", "get_hits", "get_misses", "delete_misses", "delete_hits", "incr_misses",
+            "incr_hits", "decr_misses", "decr_hits", "cas_misses", "cas_hits", "cas_badval", "touch_hits",
+            "touch_misses", "auth_cmds", "auth_errors", "bytes_read", "bytes_written", "limit_maxbytes",
+            "accepting_conns", "listen_disabled_num", "threads", "conn_yields", "hash_power_level", "hash_bytes",
+            "hash_is_expanding", "slab_reassign_running", "slabs_moved", "bytes", "curr_items", "total_items",
+            "expired_unfetched", "evicted_unfetched", "evictions", "reclaimed", "crawler_reclaimed"};
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Long> requests = new HashMap<String, Long>();
+    private final boolean hanging;
+
+    public StubMemcachedServer() throws IOException {
+        this(false);
+    }
+
+    public StubMemcachedServer(boolean hanging) throws IOException {
+        this.hanging = hanging;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, THREAD_PREFIX + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts all the counters over, as after a restart of memcached, which is detected from the uptime going backwards.
+     */
+    public synchronized void restart() {
+        requests.clear();
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                Thread handler = new Thread(new Runnable() {
+                    public void run() {
+                        serve(socket);
+                    }
+                }, THREAD_PREFIX + serverSocket.getLocalPort() + "-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                //server closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (hanging) {
+                while (in.read() != -1) {
+                    //never answer
+                }
+                return;
+            }
+            serveText(in, out);
+        } catch (IOException e) {
+            //client disconnected
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //ignore
+            }
+        }
+    }
+
+    private void serveText(DataInputStream in, DataOutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"));
+        String command;
+        while ((command = reader.readLine()) != null) {
+            if (command.equals("stats") || command.startsWith("stats ")) {
+                String group = command.length() > "stats ".length() ? command.substring("stats ".length()).trim() : "";
+                for (Map.Entry<String, String> stat : getStats(group).entrySet()) {
+                    out.writeBytes("STAT " + stat.getKey() + " " + stat.getValue() + "\r\n");
+                }
+                out.writeBytes("END\r\n");
+            } else {
+                out.writeBytes("ERROR\r\n");
+            }
+            out.flush();
+        }
+    }
+
+    private Map<String, String> getStats(String group) {
+        long count = nextRequest(group);
+        Map<String, String> stats = new LinkedHashMap<String, String>();
+        if (group.length() == 0) {
+            for (String stat : GENERAL_STATS) {
+                stats.put(stat, String.valueOf(count * 17));
+            }
+            stats.put("pid", "4242");
+            stats.put("uptime", String.valueOf(count * 60));
+            stats.put("version", "1.4.13");
+            stats.put("libevent", "2.0.21-stable");
+            stats.put("rusage_user", "0.123456");
+        } else if (group.equals("slabs") || group.equals("items")) {
+            for (int slabClass = 1; slabClass <= 10; slabClass++) {
+                String prefix = group.equals("items") ? "items:" + slabClass + ":" : slabClass + ":";
+                stats.put(prefix + "chunk_size", String.valueOf(96 * slabClass));
+                stats.put(prefix + "total_pages", String.valueOf(slabClass));
+                stats.put(prefix + "evicted", String.valueOf(count * EVICTED_PER_REQUEST));
+            }
+        } else if (group.equals("settings")) {
+            stats.put("maxbytes", "67108864");
+            stats.put("maxconns", "1024");
+            stats.put("num_threads", "4");
+        }
+        return stats;
+    }
+
+    private synchronized long nextRequest(String group) {
+        Long count = requests.get(group);
+        count = count != null ? count + 1 : 1;
+        requests.put(group, count);
+        return count;
+    }
+}